@@ -6,11 +6,22 @@
 
 import java.io.*;
 import java.math.BigInteger;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.regex.*;
 import java.util.stream.*;
 
@@ -24,6 +35,13 @@ public final class Transacto {
     private static final String STATUS_CANCELLED_STR = "CANCELLED";
     private static final int MAX_RPC_RETRIES = 3;
     private static final long RPC_RETRY_DELAY_MS = 500;
+    private static final int MAX_BATCH_CALLS = 100; // JSON-RPC array size most providers accept
+    private static final int MAX_SCAN_CONCURRENCY = 256;
+    private static final int MAX_ORDER_IDS_PER_CALL = 4096; // ~260 KB of hex in one eth_call result
+    private static final Duration MAX_RPC_RETRY_DELAY = Duration.ofSeconds(10);
+    private static final Duration RPC_CALL_DEADLINE = Duration.ofSeconds(60);
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
     private static final String CONFIG_FILENAME = "transacto.conf";
     private static final Pattern ADDRESS_PATTERN = Pattern.compile("^0x[0-9a-fA-F]{40}$");
     private static final Pattern ORDER_ID_PATTERN = Pattern.compile("^0x[0-9a-fA-F]{64}$");
@@ -60,22 +78,96 @@ public final class Transacto {
     private static final String FEE_PERCENT_BPS_SELECTOR = "0x5d6e7f90";
     private static final String GET_ORDER_IDS_SELECTOR = "0x9a0b1c2d";
 
+    // Event topics, derived from the event signatures; topic[1] is the indexed orderId
+    private static final String ORDER_POSTED_EVENT = "OrderPosted(bytes32,address,uint8,bytes32,uint256,uint256,bool)";
+    private static final String ORDER_FILLED_EVENT = "OrderFilled(bytes32,address,uint256)";
+    private static final String ORDER_CANCELLED_EVENT = "OrderCancelled(bytes32,address)";
+    private static final String ORDER_POSTED_TOPIC = SelectorRegistry.topic(ORDER_POSTED_EVENT);
+    private static final String ORDER_FILLED_TOPIC = SelectorRegistry.topic(ORDER_FILLED_EVENT);
+    private static final String ORDER_CANCELLED_TOPIC = SelectorRegistry.topic(ORDER_CANCELLED_EVENT);
+
     // -------------------------------------------------------------------------
     // STATE
     // -------------------------------------------------------------------------
 
-    private String rpcUrl = DEFAULT_RPC;
+    private volatile EndpointPool endpoints = new EndpointPool(List.of(DEFAULT_RPC));
     private String privateKeyHex; // optional; for sending txs
     private final OtcRpc rpc;
+    private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private Duration readTimeout = DEFAULT_READ_TIMEOUT;
+    private volatile HttpClient httpClient; // shared, keep-alive, HTTP/2 with HTTP/1.1 fallback
+    private int scanConcurrency = 1; // >1 fans view calls out concurrently instead of JSON-RPC batching
+    private volatile ExecutorService scanExecutor; // shared by parallel scans, sized to scanConcurrency
+    private final AtomicBoolean orderIdsRangeGetter; // opt-in, shared with snapshots; see getOrderIds(long, int)
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private volatile HedgePolicy hedgePolicy; // null = hedging off
+    private volatile ViewCache viewCache; // null = every view call hits the network
+    private final long pinnedBlock; // -1 = "latest"
 
     public Transacto() {
+        SelectorRegistry.verifyOnce();
         this.rpc = new OtcRpc(OTC_CONTRACT_ADDRESS);
+        this.pinnedBlock = -1;
+        this.orderIdsRangeGetter = new AtomicBoolean();
+    }
+
+    /** Read-only view of {@code base} whose calls all execute at {@code blockNumber}. */
+    private Transacto(Transacto base, long blockNumber) {
+        this.rpc = base.rpc;
+        this.pinnedBlock = blockNumber;
+        this.endpoints = base.endpoints;
+        this.privateKeyHex = base.privateKeyHex;
+        this.connectTimeout = base.connectTimeout;
+        this.readTimeout = base.readTimeout;
+        this.httpClient = base.httpClient();
+        this.scanConcurrency = base.scanConcurrency;
+        this.scanExecutor = base.scanConcurrency > 1 ? base.scanExecutor() : null;
+        this.orderIdsRangeGetter = base.orderIdsRangeGetter;
+        this.retryPolicy = base.retryPolicy;
+        this.hedgePolicy = base.hedgePolicy;
+        this.viewCache = base.viewCache;
+    }
+
+    /**
+     * Returns a client whose view calls all run against {@code blockNumber}, sharing this
+     * client's connections, endpoints, policies and cache as currently configured.
+     */
+    public Transacto atBlock(long blockNumber) {
+        if (blockNumber < 0) throw new IllegalArgumentException("blockNumber must be >= 0");
+        return new Transacto(this, blockNumber);
+    }
+
+    /** atBlock(current head): a consistent snapshot for multi-call scans. */
+    public Transacto snapshot() throws IOException {
+        return pinnedBlock >= 0 ? this : atBlock(getBlockNumber());
     }
 
-    public void setRpcUrl(String url) { this.rpcUrl = url != null ? url : DEFAULT_RPC; }
-    public String getRpcUrl() { return rpcUrl; }
+    /** The block all view calls are pinned to, or -1 when they read "latest". */
+    public long getPinnedBlock() { return pinnedBlock; }
+
+    public void setRpcUrl(String url) { this.endpoints = new EndpointPool(List.of(url != null ? url : DEFAULT_RPC)); }
+    public String getRpcUrl() { return endpoints.getEndpoints().get(0).getUrl(); }
+    public void setRpcUrls(List<String> urls) { this.endpoints = new EndpointPool(urls == null || urls.isEmpty() ? List.of(DEFAULT_RPC) : urls); }
+    public EndpointPool getEndpointPool() { return endpoints; }
+    /** Opt-in request hedging; needs at least two RPC URLs. Pass null to turn it off. */
+    public void setHedgePolicy(HedgePolicy p) { this.hedgePolicy = p; }
+    public HedgePolicy getHedgePolicy() { return hedgePolicy; }
+    /** Block-pinned cache for eth_call views; pass null to disable. */
+    public void setViewCache(ViewCache c) { this.viewCache = c; }
+    public ViewCache getViewCache() { return viewCache; }
     public void setPrivateKeyHex(String hex) { this.privateKeyHex = hex; }
     public boolean hasPrivateKey() { return privateKeyHex != null && !privateKeyHex.isBlank(); }
+    public synchronized void setConnectTimeout(Duration d) { this.connectTimeout = d != null ? d : DEFAULT_CONNECT_TIMEOUT; this.httpClient = null; }
+    public Duration getConnectTimeout() { return connectTimeout; }
+    public void setReadTimeout(Duration d) { this.readTimeout = d != null ? d : DEFAULT_READ_TIMEOUT; }
+    public Duration getReadTimeout() { return readTimeout; }
+    public synchronized void setScanConcurrency(int n) { this.scanConcurrency = Math.max(1, Math.min(n, MAX_SCAN_CONCURRENCY)); this.scanExecutor = null; }
+    public int getScanConcurrency() { return scanConcurrency; }
+    public void setRetryPolicy(RetryPolicy p) { this.retryPolicy = p != null ? p : RetryPolicy.NONE; }
+    public RetryPolicy getRetryPolicy() { return retryPolicy; }
+    /** Try the assumed getOrderIds(uint256,uint256) getter before getOrderAt; off by default. */
+    public void setOrderIdsRangeGetter(boolean enabled) { orderIdsRangeGetter.set(enabled); }
+    public boolean isOrderIdsRangeGetter() { return orderIdsRangeGetter.get(); }
 
     // -------------------------------------------------------------------------
     // DATA MODELS
@@ -93,6 +185,10 @@ public final class Transacto {
         public int status;
         public BigInteger createdAt;
 
+        public HexId orderIdKey() { return HexId.bytes32(orderId); }
+        public HexId makerKey() { return HexId.address(maker); }
+        public HexId assetIdKey() { return HexId.bytes32(assetId); }
+
         @Override
         public String toString() {
             return String.format("OrderView{id=%s maker=%s assetType=%d amount=%s price=%s isSell=%s filled=%s status=%d}",
@@ -108,6 +204,9 @@ public final class Transacto {
         public BigInteger pricePerUnit;
         public boolean isSell;
         public int status;
+
+        public HexId orderIdKey() { return HexId.bytes32(orderId); }
+        public HexId makerKey() { return HexId.address(maker); }
     }
 
     public static final class PlatformStats {
@@ -116,6 +215,88 @@ public final class Transacto {
         public BigInteger minOrderWei;
         public BigInteger feeBps;
         public boolean paused;
+        public long blockNumber = -1; // block the stats were read at; -1 if "latest"
+    }
+
+    /**
+     * Canonical 20-byte address or 32-byte id: 0x-prefixed lowercase hex with a cached hash code.
+     * Values are interned in a fixed-size, direct-mapped table: a recently seen value comes back
+     * as the same instance, while a colliding newcomer simply replaces the old slot, so memory
+     * stays bounded however many ids pass through. Identity is a best-effort saving; always
+     * compare with equals(). Decoders store {@link #canonical(String)} strings in OrderView and
+     * OrderSummary.
+     */
+    public static final class HexId implements Comparable<HexId> {
+        private static final int POOL_SLOTS = 1 << 16;
+        private static final AtomicReferenceArray<HexId> POOL = new AtomicReferenceArray<>(POOL_SLOTS);
+
+        private final String hex;
+        private final int hash;
+
+        private HexId(String hex) {
+            this.hex = hex;
+            this.hash = hex.hashCode();
+        }
+
+        /** Parses and interns an address; throws IllegalArgumentException unless it matches ADDRESS_PATTERN. */
+        public static HexId address(String s) {
+            if (s == null || !ADDRESS_PATTERN.matcher(s).matches()) throw new IllegalArgumentException("Invalid address: " + s);
+            return intern(s);
+        }
+
+        /** Parses and interns a bytes32 (order id, asset id); must match ORDER_ID_PATTERN. */
+        public static HexId bytes32(String s) {
+            if (s == null || !ORDER_ID_PATTERN.matcher(s).matches()) throw new IllegalArgumentException("Invalid bytes32: " + s);
+            return intern(s);
+        }
+
+        public static boolean isAddress(String s) { return s != null && ADDRESS_PATTERN.matcher(s).matches(); }
+        public static boolean isBytes32(String s) { return s != null && ORDER_ID_PATTERN.matcher(s).matches(); }
+
+        /** The pooled canonical String for a decoded hex value (no width check); null stays null. */
+        public static String canonical(String s) {
+            return s == null ? null : intern(s).hex;
+        }
+
+        /** Occupied interning slots (at most POOL_SLOTS); scans the table. */
+        public static int poolSize() {
+            int n = 0;
+            for (int i = 0; i < POOL_SLOTS; i++) if (POOL.get(i) != null) n++;
+            return n;
+        }
+
+        private static HexId intern(String s) {
+            HexId id = POOL.get(slot(s.hashCode()));
+            if (id != null && id.hex.equals(s)) return id; // hot path: value already canonical and pooled
+            String lower = s.toLowerCase(Locale.ROOT);
+            if (!lower.startsWith("0x")) lower = "0x" + lower;
+            int slot = slot(lower.hashCode());
+            id = POOL.get(slot);
+            if (id != null && id.hex.equals(lower)) return id;
+            id = new HexId(lower);
+            POOL.set(slot, id);
+            return id;
+        }
+
+        private static int slot(int hash) {
+            return (hash ^ (hash >>> 16)) & (POOL_SLOTS - 1);
+        }
+
+        public int byteLength() { return (hex.length() - 2) / 2; }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof HexId && hash == ((HexId) o).hash && hex.equals(((HexId) o).hex));
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+
+        @Override
+        public int compareTo(HexId o) { return hex.compareTo(o.hex); }
+
+        @Override
+        public String toString() { return hex; }
     }
 
     // -------------------------------------------------------------------------
@@ -148,170 +329,3391 @@ public final class Transacto {
         return padLeft(hex, 32);
     }
 
-    private static String encodeBool(boolean b) {
-        return padLeft(b ? "1" : "0", 32);
+    /**
+     * Calldata writer that encodes the selector and 32-byte words straight into a reusable
+     * byte[] and hex-encodes once through a lookup table. Not thread-safe; use {@link #get()}
+     * for a per-thread instance.
+     */
+    static final class AbiWriter {
+        private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        private static final ThreadLocal<AbiWriter> LOCAL = ThreadLocal.withInitial(AbiWriter::new);
+
+        private byte[] buf = new byte[4 + 32 * 8];
+        private byte[] text = new byte[2 + buf.length * 2];
+        private int len;
+
+        /** This thread's writer, reset and ready to use. */
+        static AbiWriter get() {
+            return LOCAL.get().reset();
+        }
+
+        AbiWriter reset() {
+            len = 0;
+            return this;
+        }
+
+        /** Appends a 4-byte selector given as (0x-prefixed) hex. */
+        AbiWriter selector(String selectorHex) {
+            ensure(4);
+            int p = selectorHex.startsWith("0x") ? 2 : 0;
+            for (int i = 0; i < 4; i++, p += 2) {
+                buf[len++] = (byte) (AbiWords.digit(selectorHex.charAt(p)) << 4 | AbiWords.digit(selectorHex.charAt(p + 1)));
+            }
+            return this;
+        }
+
+        AbiWriter selector(byte[] selector) {
+            ensure(4);
+            System.arraycopy(selector, 0, buf, len, 4);
+            len += 4;
+            return this;
+        }
+
+        AbiWriter uint(long v) {
+            ensure(32);
+            Arrays.fill(buf, len, len + 24, (byte) 0);
+            for (int i = 31; i >= 24; i--, v >>>= 8) buf[len + i] = (byte) v;
+            len += 32;
+            return this;
+        }
+
+        /** Appends a uint256 word; like padUint256, null encodes as zero and wider values keep the low 32 bytes. */
+        AbiWriter uint(BigInteger n) {
+            if (n == null) return uint(0L);
+            if (n.signum() >= 0 && n.bitLength() < 64) return uint(n.longValue());
+            ensure(32);
+            byte[] b = n.toByteArray();
+            int copy = Math.min(32, b.length);
+            Arrays.fill(buf, len, len + 32 - copy, n.signum() < 0 ? (byte) 0xFF : 0);
+            System.arraycopy(b, b.length - copy, buf, len + 32 - copy, copy);
+            len += 32;
+            return this;
+        }
+
+        AbiWriter bool(boolean b) {
+            return uint(b ? 1L : 0L);
+        }
+
+        /** Appends hex left-padded to 32 bytes; like padBytes32, longer input keeps its last 64 digits. */
+        AbiWriter bytes32(String hex) {
+            ensure(32);
+            int start = hex != null && hex.startsWith("0x") ? 2 : 0;
+            int digits = hex == null ? 0 : hex.length() - start;
+            if (digits > 64) {
+                start += digits - 64;
+                digits = 64;
+            }
+            Arrays.fill(buf, len, len + 32, (byte) 0);
+            int nibble = 64 - digits; // first nibble position written
+            for (int i = 0; i < digits; i++, nibble++) {
+                int d = AbiWords.digit(hex.charAt(start + i));
+                int at = len + (nibble >> 1);
+                buf[at] = (byte) ((nibble & 1) == 0 ? d << 4 : buf[at] | d);
+            }
+            len += 32;
+            return this;
+        }
+
+        /** The encoded bytes as 0x-prefixed lowercase hex. */
+        String toHex() {
+            int n = 2 + len * 2;
+            if (text.length < n) text = new byte[n];
+            text[0] = '0';
+            text[1] = 'x';
+            for (int i = 0, j = 2; i < len; i++) {
+                text[j++] = HEX_DIGITS[(buf[i] >> 4) & 0xF];
+                text[j++] = HEX_DIGITS[buf[i] & 0xF];
+            }
+            return new String(text, 0, n, StandardCharsets.ISO_8859_1);
+        }
+
+        private void ensure(int extra) {
+            if (len + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
     }
 
     // -------------------------------------------------------------------------
-    // RPC CALL (eth_call)
+    // ABI DECODING
     // -------------------------------------------------------------------------
 
-    private String ethCall(String to, String data) throws IOException {
-        String body = "{\"jsonrpc\":\"2.0\",\"method\":\"eth_call\",\"params\":[{\"to\":\"" + to + "\",\"data\":\"" + data + "\"},\"latest\"],\"id\":1}";
-        return postJson(rpcUrl, body);
+    /**
+     * Read-only view over ABI-encoded hex (with or without 0x), addressed by 32-byte word index.
+     * Reads digits in place: small values decode to primitives, and BigInteger is only built for
+     * words that do not fit in a long.
+     */
+    static final class AbiWords {
+        private static final byte[] HEX_VALUES = new byte[128];
+        static {
+            Arrays.fill(HEX_VALUES, (byte) -1);
+            for (int i = 0; i < 10; i++) HEX_VALUES['0' + i] = (byte) i;
+            for (int i = 0; i < 6; i++) {
+                HEX_VALUES['a' + i] = (byte) (10 + i);
+                HEX_VALUES['A' + i] = (byte) (10 + i);
+            }
+        }
+
+        private final CharSequence hex;
+        private final int base;
+        private final int words;
+
+        private AbiWords(CharSequence hex, int base) {
+            this.hex = hex;
+            this.base = base;
+            this.words = (hex.length() - base) / 64;
+        }
+
+        static AbiWords of(CharSequence hex) {
+            if (hex == null) return null;
+            boolean prefixed = hex.length() >= 2 && hex.charAt(0) == '0' && (hex.charAt(1) == 'x' || hex.charAt(1) == 'X');
+            return new AbiWords(hex, prefixed ? 2 : 0);
+        }
+
+        int size() { return words; }
+
+        static int digit(char c) {
+            int d = c < 128 ? HEX_VALUES[c] : -1;
+            if (d < 0) throw new NumberFormatException("Invalid hex digit '" + c + "'");
+            return d;
+        }
+
+        private int start(int word) {
+            if (word < 0 || word >= words) throw new IndexOutOfBoundsException("ABI word " + word + " of " + words);
+            return base + word * 64;
+        }
+
+        /** True when the word's value is below 2^63. */
+        boolean fitsLong(int word) {
+            int p = start(word);
+            for (int i = 0; i < 48; i++) if (hex.charAt(p + i) != '0') return false;
+            return digit(hex.charAt(p + 48)) < 8;
+        }
+
+        /** Low 64 bits of the word (same truncation as BigInteger.longValue()). */
+        long getLong(int word) {
+            int p = start(word) + 48;
+            long v = 0;
+            for (int i = 0; i < 16; i++) v = (v << 4) | digit(hex.charAt(p + i));
+            return v;
+        }
+
+        /** Big-endian 64-bit lane {@code lane} (0..3) of the word. */
+        long getLane(int word, int lane) {
+            int p = start(word) + lane * 16;
+            long v = 0;
+            for (int i = 0; i < 16; i++) v = (v << 4) | digit(hex.charAt(p + i));
+            return v;
+        }
+
+        int getInt(int word) { return (int) getLong(word); }
+
+        boolean getBool(int word) {
+            int p = start(word);
+            for (int i = 0; i < 64; i++) if (hex.charAt(p + i) != '0') return true;
+            return false;
+        }
+
+        BigInteger getUint(int word) {
+            if (fitsLong(word)) return BigInteger.valueOf(getLong(word));
+            int p = start(word);
+            byte[] b = new byte[33]; // leading zero byte keeps the value unsigned
+            for (int i = 0; i < 32; i++) b[i + 1] = (byte) (digit(hex.charAt(p + 2 * i)) << 4 | digit(hex.charAt(p + 2 * i + 1)));
+            return new BigInteger(b);
+        }
+
+        /** The full word as a 0x-prefixed 64-digit string (bytes32). */
+        String getBytes32(int word) {
+            int p = start(word);
+            return new StringBuilder(66).append("0x").append(hex, p, p + 64).toString();
+        }
+
+        /** {@code count} raw bytes starting at the beginning of {@code word}. */
+        byte[] getBytes(int word, int count) {
+            if (count == 0) return new byte[0];
+            int p = start(word);
+            start(word + (count - 1) / 32);
+            byte[] b = new byte[count];
+            for (int i = 0; i < count; i++) b[i] = (byte) (digit(hex.charAt(p + 2 * i)) << 4 | digit(hex.charAt(p + 2 * i + 1)));
+            return b;
+        }
+
+        /** The low 20 bytes of the word as a 0x-prefixed address. */
+        String getAddress(int word) {
+            int p = start(word);
+            return new StringBuilder(42).append("0x").append(hex, p + 24, p + 64).toString();
+        }
     }
 
-    private String postJson(String urlString, String jsonBody) throws IOException {
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setDoOutput(true);
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(jsonBody.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Compiled ABI type. Parse a canonical Solidity type string once (results are cached) and
+     * reuse it: uintN, intN, bool, address, bytesN, bytes, string, T[], T[k] and nested tuples.
+     */
+    static final class AbiType {
+        enum Kind { UINT, INT, BOOL, ADDRESS, FIXED_BYTES, BYTES, STRING, ARRAY, TUPLE }
+
+        private static final ConcurrentHashMap<String, AbiType> COMPILED = new ConcurrentHashMap<>();
+
+        final Kind kind;
+        final AbiType element;          // ARRAY only
+        final int length;               // ARRAY only: fixed length, or -1 for T[]
+        final List<AbiType> components; // TUPLE only
+        final boolean dynamic;
+        /** Words this type occupies inline in an enclosing head (1 for dynamic types: the offset). */
+        final int headWords;
+        private final int[] fieldHead;  // TUPLE only: head word of each component
+
+        private AbiType(Kind kind, AbiType element, int length, List<AbiType> components) {
+            this.kind = kind;
+            this.element = element;
+            this.length = length;
+            this.components = components;
+            switch (kind) {
+                case BYTES:
+                case STRING:
+                    dynamic = true;
+                    headWords = 1;
+                    fieldHead = null;
+                    break;
+                case ARRAY:
+                    dynamic = length < 0 || element.dynamic;
+                    headWords = dynamic ? 1 : length * element.headWords;
+                    fieldHead = null;
+                    break;
+                case TUPLE:
+                    fieldHead = new int[components.size()];
+                    int words = 0;
+                    boolean anyDynamic = false;
+                    for (int i = 0; i < fieldHead.length; i++) {
+                        fieldHead[i] = words;
+                        words += components.get(i).headWords;
+                        anyDynamic |= components.get(i).dynamic;
+                    }
+                    dynamic = anyDynamic;
+                    headWords = dynamic ? 1 : words;
+                    break;
+                default:
+                    dynamic = false;
+                    headWords = 1;
+                    fieldHead = null;
+            }
+        }
+
+        static AbiType parse(String type) {
+            return COMPILED.computeIfAbsent(type.replace(" ", ""), t -> {
+                int[] pos = {0};
+                AbiType parsed = parse(t, pos);
+                if (pos[0] != t.length()) throw new IllegalArgumentException("Unexpected '" + t.charAt(pos[0]) + "' in ABI type " + t);
+                return parsed;
+            });
         }
-        int code = conn.getResponseCode();
-        if (code != 200) {
-            try (InputStream err = conn.getErrorStream()) {
-                String errBody = err != null ? new String(err.readAllBytes(), StandardCharsets.UTF_8) : "";
-                throw new IOException("HTTP " + code + " " + errBody);
+
+        private static AbiType parse(String s, int[] pos) {
+            AbiType type;
+            if (pos[0] < s.length() && s.charAt(pos[0]) == '(') {
+                pos[0]++;
+                List<AbiType> parts = new ArrayList<>();
+                if (pos[0] < s.length() && s.charAt(pos[0]) == ')') {
+                    pos[0]++;
+                } else {
+                    while (true) {
+                        parts.add(parse(s, pos));
+                        if (pos[0] >= s.length()) throw new IllegalArgumentException("Unterminated tuple in ABI type " + s);
+                        char c = s.charAt(pos[0]++);
+                        if (c == ')') break;
+                        if (c != ',') throw new IllegalArgumentException("Unexpected '" + c + "' in ABI type " + s);
+                    }
+                }
+                type = new AbiType(Kind.TUPLE, null, 0, Collections.unmodifiableList(parts));
+            } else {
+                int start = pos[0];
+                while (pos[0] < s.length() && Character.isLetterOrDigit(s.charAt(pos[0]))) pos[0]++;
+                type = elementary(s.substring(start, pos[0]));
+            }
+            while (pos[0] < s.length() && s.charAt(pos[0]) == '[') {
+                int close = s.indexOf(']', pos[0]);
+                if (close < 0) throw new IllegalArgumentException("Unterminated array in ABI type " + s);
+                String n = s.substring(pos[0] + 1, close);
+                type = new AbiType(Kind.ARRAY, type, n.isEmpty() ? -1 : Integer.parseInt(n), null);
+                pos[0] = close + 1;
             }
+            return type;
         }
-        try (InputStream is = conn.getInputStream()) {
-            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+
+        private static AbiType elementary(String name) {
+            Kind kind;
+            if (name.equals("bool")) kind = Kind.BOOL;
+            else if (name.equals("address")) kind = Kind.ADDRESS;
+            else if (name.equals("bytes")) kind = Kind.BYTES;
+            else if (name.equals("string")) kind = Kind.STRING;
+            else if (name.startsWith("uint")) kind = Kind.UINT;
+            else if (name.startsWith("int")) kind = Kind.INT;
+            else if (name.startsWith("bytes")) kind = Kind.FIXED_BYTES;
+            else throw new IllegalArgumentException("Unsupported ABI type '" + name + "'");
+            return new AbiType(kind, null, 0, null);
         }
     }
 
-    private static String extractResult(String jsonResponse) {
-        if (jsonResponse == null) return null;
-        int i = jsonResponse.indexOf("\"result\":\"");
-        if (i < 0) return null;
-        i += 10;
-        int j = jsonResponse.indexOf("\"", i);
-        if (j < 0) return null;
-        return jsonResponse.substring(i, j);
+    /**
+     * Walks ABI-encoded data against a compiled {@link AbiType}, following offset pointers, and
+     * decodes into caller-owned targets. Positions are absolute word indices into the AbiWords;
+     * offsets are resolved relative to the enclosing tuple or array as the ABI specifies.
+     * Malformed data (bad offsets, lengths that overrun the buffer) raises IllegalArgumentException.
+     */
+    static final class AbiReader {
+        /** Fills {@code target} from the value of the element type starting at {@code word}. */
+        interface Decoder<T> {
+            void decode(AbiReader reader, int word, T target);
+        }
+
+        private final AbiWords w;
+
+        AbiReader(AbiWords w) {
+            this.w = w;
+        }
+
+        AbiWords words() { return w; }
+
+        /** Start of a single return value of {@code type} (return data is a one-element tuple). */
+        int root(AbiType type) {
+            return type.dynamic ? pointer(0, 0) : 0;
+        }
+
+        /** Start of component {@code index} of the tuple whose head begins at {@code base}. */
+        int field(AbiType tuple, int base, int index) {
+            int slot = base + tuple.fieldHead[index];
+            return tuple.components.get(index).dynamic ? pointer(base, slot) : slot;
+        }
+
+        /** Element count of the array at {@code at}, checked against the data actually present. */
+        int length(AbiType array, int at) {
+            if (array.length >= 0) return array.length;
+            if (at >= w.size() || !w.fitsLong(at)) throw new IllegalArgumentException("Bad array length at word " + at);
+            long n = w.getLong(at);
+            if (n < 0 || n > (w.size() - at - 1) / Math.max(1, array.element.headWords)) { // no n * headWords overflow
+                throw new IllegalArgumentException("Array of " + n + " overruns " + w.size() + " words");
+            }
+            return (int) n;
+        }
+
+        /** Start of element {@code i} of the array at {@code at}. */
+        int element(AbiType array, int at, int i) {
+            int start = array.length < 0 ? at + 1 : at;
+            return array.element.dynamic ? pointer(start, start + i) : start + i * array.element.headWords;
+        }
+
+        /** Decodes up to {@code targets.length} elements in place; returns the encoded length. */
+        <T> int decodeArray(AbiType array, int at, Decoder<T> decoder, T[] targets) {
+            int n = length(array, at);
+            for (int i = 0, m = Math.min(n, targets.length); i < m; i++) decoder.decode(this, element(array, at, i), targets[i]);
+            return n;
+        }
+
+        <T> List<T> decodeList(AbiType array, int at, Decoder<T> decoder, java.util.function.Supplier<T> factory) {
+            int n = length(array, at);
+            List<T> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                T target = factory.get();
+                decoder.decode(this, element(array, at, i), target);
+                list.add(target);
+            }
+            return list;
+        }
+
+        /** Payload of the {@code bytes} value at {@code at}. */
+        byte[] bytes(int at) {
+            if (at >= w.size() || !w.fitsLong(at)) throw new IllegalArgumentException("Bad bytes length at word " + at);
+            long n = w.getLong(at);
+            if (n > (long) (w.size() - at - 1) * 32) throw new IllegalArgumentException("Bytes of " + n + " overrun the data");
+            return w.getBytes(at + 1, (int) n);
+        }
+
+        String string(int at) {
+            return new String(bytes(at), StandardCharsets.UTF_8);
+        }
+
+        private int pointer(int base, int slot) {
+            if (slot >= w.size() || !w.fitsLong(slot)) throw new IllegalArgumentException("Bad offset at word " + slot);
+            long off = w.getLong(slot);
+            if ((off & 31) != 0 || base + off / 32 >= w.size()) throw new IllegalArgumentException("Offset " + off + " out of range");
+            return (int) (base + off / 32);
+        }
     }
 
     // -------------------------------------------------------------------------
-    // CONTRACT VIEW CALLS (decode from 0x-prefixed hex)
+    // RPC CALL (eth_call)
     // -------------------------------------------------------------------------
 
-    public BigInteger getOrderIdsLength() throws IOException {
-        String data = GET_ORDER_IDS_LENGTH_SELECTOR;
-        String raw = ethCall(OTC_CONTRACT_ADDRESS, data);
-        String result = extractResult(raw);
-        if (result == null || result.length() < 66) return BigInteger.ZERO;
-        return new BigInteger(result.substring(2), 16);
+    private static String ethCallPayload(String to, String data, String blockTag, int id) {
+        return rpcPayload("eth_call", "[{\"to\":\"" + to + "\",\"data\":\"" + data + "\"},\"" + blockTag + "\"]", id);
     }
 
-    public String getOrderAt(BigInteger index) throws IOException {
-        String data = GET_ORDER_AT_SELECTOR + padUint256(index);
-        String raw = ethCall(OTC_CONTRACT_ADDRESS, data);
-        String result = extractResult(raw);
-        if (result == null || result.length() < 66) return null;
-        return "0x" + result.substring(2).toLowerCase();
+    private static String blockTag(long blockNumber) {
+        return "0x" + Long.toHexString(blockNumber);
     }
 
-    public OrderView getOrderViewByIndex(BigInteger index) throws IOException {
-        String data = GET_ORDER_VIEW_BY_INDEX_SELECTOR + padUint256(index);
-        String raw = ethCall(OTC_CONTRACT_ADDRESS, data);
-        String result = extractResult(raw);
-        return decodeOrderView(result);
+    private static String rpcPayload(String method, String paramsJson, int id) {
+        return "{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":" + paramsJson + ",\"id\":" + id + "}";
     }
 
-    public OrderView getOrderView(String orderIdHex) throws IOException {
-        String data = GET_ORDER_VIEW_SELECTOR + padBytes32(orderIdHex);
-        String raw = ethCall(OTC_CONTRACT_ADDRESS, data);
-        String result = extractResult(raw);
-        return decodeOrderView(result);
+    /** Returns the hex result of an eth_call; JSON-RPC errors surface as RpcException. */
+    private String ethCall(String to, String data) throws IOException {
+        ViewCache cache = viewCache;
+        long block = pinnedBlock >= 0 ? pinnedBlock : cache != null ? cacheHead(cache) : -1;
+        if (cache != null) {
+            String hit = cache.get(block, to, data);
+            if (hit != null) return hit;
+        }
+        String body = ethCallPayload(to, data, block >= 0 ? blockTag(block) : "latest", 1);
+        String result = retryPolicy.call(() -> single(postRpc(body)).stringResult());
+        if (cache != null && result != null) cache.put(block, to, data, result, pinnedBlock >= 0);
+        return result;
     }
 
-    private OrderView decodeOrderView(String hex) {
-        if (hex == null || hex.length() < 2) return null;
-        hex = hex.replaceFirst("^0x", "");
-        int offset = 0;
-        if (hex.length() < 64 * 10) return null;
-        OrderView v = new OrderView();
-        v.orderId = "0x" + hex.substring(offset, offset + 64).replaceFirst("^0+", "");
-        if (v.orderId.length() < 66) v.orderId = "0x" + hex.substring(offset, offset + 64);
-        offset += 64;
-        v.maker = "0x" + hex.substring(offset + 24, offset + 64);
-        offset += 64;
-        v.assetType = new BigInteger(hex.substring(offset, offset + 64), 16).intValue();
-        offset += 64;
-        v.assetId = "0x" + hex.substring(offset, offset + 64);
-        offset += 64;
-        v.amount = new BigInteger(hex.substring(offset, offset + 64), 16);
-        offset += 64;
-        v.pricePerUnit = new BigInteger(hex.substring(offset, offset + 64), 16);
-        offset += 64;
-        v.isSell = new BigInteger(hex.substring(offset, offset + 64), 16).signum() != 0;
-        offset += 64;
-        v.filledAmount = new BigInteger(hex.substring(offset, offset + 64), 16);
-        offset += 64;
-        v.status = new BigInteger(hex.substring(offset, offset + 64), 16).intValue();
-        offset += 64;
-        v.createdAt = new BigInteger(hex.substring(offset, offset + 64), 16);
-        return v;
+    public CompletableFuture<String> ethCallAsync(String to, String data) {
+        String body = ethCallPayload(to, data, pinnedBlock >= 0 ? blockTag(pinnedBlock) : "latest", 1);
+        return retryPolicy.callAsync(() -> postRpcAsync(body).thenApply(responses -> {
+            try {
+                return single(responses).stringResult();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }));
     }
 
-    public List<OrderView> getOrderViewsBatch(int offset, int limit) throws IOException {
-        BigInteger len = getOrderIdsLength();
-        if (len.compareTo(BigInteger.valueOf(offset)) <= 0) return Collections.emptyList();
-        int end = Math.min(offset + limit, len.intValue());
-        int batch = Math.min(limit, 48);
-        List<OrderView> list = new ArrayList<>();
-        for (int i = offset; i < end && (i - offset) < batch; i++) {
-            OrderView v = getOrderViewByIndex(BigInteger.valueOf(i));
-            if (v != null) list.add(v);
+    /** Latest block number via eth_blockNumber. */
+    public long getBlockNumber() throws IOException {
+        Object r = rpcCall("eth_blockNumber", "[]");
+        if (!(r instanceof String) || !((String) r).startsWith("0x")) throw new IOException("Bad eth_blockNumber result: " + r);
+        return Long.parseLong(((String) r).substring(2), 16);
+    }
+
+    /** The head the cache is pinned to, re-polled at most once per head TTL. */
+    private long cacheHead(ViewCache cache) throws IOException {
+        long head = cache.freshHead();
+        if (head >= 0) return head;
+        head = getBlockNumber();
+        cache.onHead(head);
+        return head;
+    }
+
+    /** Generic single JSON-RPC call; the result is a String, List, Map, Long, Boolean or null. */
+    private Object rpcCall(String method, String paramsJson) throws IOException {
+        String body = rpcPayload(method, paramsJson, 1);
+        return retryPolicy.call(() -> single(postRpc(body)).result());
+    }
+
+    private static RpcResponse single(List<RpcResponse> responses) throws IOException {
+        if (responses.size() != 1) throw new MalformedResponseException("Expected one JSON-RPC response, got " + responses.size());
+        return responses.get(0);
+    }
+
+    private HttpClient httpClient() {
+        HttpClient c = httpClient;
+        if (c == null) {
+            synchronized (this) {
+                c = httpClient;
+                if (c == null) {
+                    c = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(connectTimeout)
+                        .followRedirects(HttpClient.Redirect.NORMAL)
+                        .build();
+                    httpClient = c;
+                }
+            }
         }
-        return list;
+        return c;
     }
 
-    public boolean isPlatformPaused() throws IOException {
-        String data = IS_PLATFORM_PAUSED_SELECTOR;
-        String raw = ethCall(OTC_CONTRACT_ADDRESS, data);
-        String result = extractResult(raw);
-        if (result == null || result.length() < 66) return true;
-        return new BigInteger(result.substring(2), 16).signum() != 0;
+    /** This client's scan executor; a replaced one is left to idle out (see newScanExecutor). */
+    private ExecutorService scanExecutor() {
+        ExecutorService e = scanExecutor;
+        if (e == null) {
+            synchronized (this) {
+                e = scanExecutor;
+                if (e == null) {
+                    e = newScanExecutor(scanConcurrency);
+                    scanExecutor = e;
+                }
+            }
+        }
+        return e;
     }
 
-    public BigInteger getMinOrderWei() throws IOException {
-        String data = MIN_ORDER_SIZE_SELECTOR;
-        String raw = ethCall(OTC_CONTRACT_ADDRESS, data);
-        String result = extractResult(raw);
-        if (result == null || result.length() < 66) return BigInteger.ZERO;
-        return new BigInteger(result.substring(2), 16);
+    private HttpRequest jsonRequest(String urlString, String jsonBody) {
+        return HttpRequest.newBuilder(URI.create(urlString))
+            .timeout(readTimeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+            .build();
     }
 
-    public BigInteger getFeeBps() throws IOException {
-        String data = FEE_PERCENT_BPS_SELECTOR;
-        String raw = ethCall(OTC_CONTRACT_ADDRESS, data);
-        String result = extractResult(raw);
-        if (result == null || result.length() < 66) return BigInteger.ZERO;
-        return new BigInteger(result.substring(2), 16);
+    /** Sends to the pool's preferred endpoint and feeds the outcome back into its health stats. */
+    private List<RpcResponse> postRpc(String jsonBody) throws IOException {
+        EndpointPool pool = endpoints;
+        HedgePolicy h = hedgePolicy;
+        if (h != null && pool.getEndpoints().size() > 1) return postRpcHedged(pool, h, jsonBody);
+        EndpointPool.Endpoint ep = pool.select();
+        long start = System.nanoTime();
+        try {
+            List<RpcResponse> responses = postRpc(ep.getUrl(), jsonBody);
+            pool.record(ep, System.nanoTime() - start, !overloaded(responses));
+            return responses;
+        } catch (InterruptedIOException e) {
+            pool.abandon(ep);
+            throw e;
+        } catch (IOException e) {
+            pool.record(ep, System.nanoTime() - start, false);
+            throw e;
+        }
     }
 
-    public PlatformStats getPlatformStats() throws IOException {
-        PlatformStats s = new PlatformStats();
-        s.totalOrders = getOrderIdsLength();
-        s.paused = isPlatformPaused();
-        s.minOrderWei = getMinOrderWei();
-        s.feeBps = getFeeBps();
-        int open = 0;
-        for (BigInteger i = BigInteger.ZERO; i.compareTo(s.totalOrders) < 0; i = i.add(BigInteger.ONE)) {
-            OrderView v = getOrderViewByIndex(i);
-            if (v != null && v.status == 0) open++;
+    private CompletableFuture<List<RpcResponse>> postRpcAsync(String jsonBody) {
+        EndpointPool pool = endpoints;
+        return postRpcAsync(pool, pool.select(), jsonBody);
+    }
+
+    /**
+     * The returned future is the exchange itself, so cancelling it aborts the HTTP request. A
+     * cancelled exchange (a hedge loser) still records its elapsed time as a lower bound.
+     */
+    private CompletableFuture<List<RpcResponse>> postRpcAsync(EndpointPool pool, EndpointPool.Endpoint ep, String jsonBody) {
+        long start = System.nanoTime();
+        CompletableFuture<List<RpcResponse>> f = postRpcAsync(ep.getUrl(), jsonBody);
+        f.whenComplete((responses, err) -> {
+            Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+            if (cause instanceof CancellationException) pool.recordCancelled(ep, System.nanoTime() - start);
+            else pool.record(ep, System.nanoTime() - start, err == null && !overloaded(responses));
+        });
+        return f;
+    }
+
+    /**
+     * Sends to the preferred endpoint; if no reply arrives within the policy's hedge delay, sends
+     * the same request to the next-best endpoint and returns whichever succeeds first.
+     */
+    private List<RpcResponse> postRpcHedged(EndpointPool pool, HedgePolicy h, String jsonBody) throws IOException {
+        long start = System.nanoTime();
+        EndpointPool.Endpoint first = pool.select();
+        CompletableFuture<List<RpcResponse>> primary = postRpcAsync(pool, first, jsonBody);
+        CompletableFuture<List<RpcResponse>> backup = null;
+        long hedgeStart = 0;
+        try {
+            try {
+                List<RpcResponse> r = primary.get(h.delayMillis(), TimeUnit.MILLISECONDS);
+                h.recordLatency(System.nanoTime() - start);
+                return r;
+            } catch (TimeoutException e) {
+                EndpointPool.Endpoint second = pool.select(first);
+                if (second == null) return primary.get();
+                h.recordHedge();
+                hedgeStart = System.nanoTime();
+                backup = postRpcAsync(pool, second, jsonBody);
+            }
+            CompletableFuture<List<RpcResponse>> hedge = backup;
+            CompletableFuture<Boolean> winner = new CompletableFuture<>();
+            primary.whenComplete((r, err) -> { if (err == null) winner.complete(false); else if (hedge.isCompletedExceptionally()) winner.completeExceptionally(err); });
+            hedge.whenComplete((r, err) -> { if (err == null) winner.complete(true); else if (primary.isCompletedExceptionally()) winner.completeExceptionally(err); });
+            boolean hedgeWon = winner.get();
+            h.recordLatency(System.nanoTime() - (hedgeWon ? hedgeStart : start)); // the winner's own latency
+            if (hedgeWon) h.recordHedgeWin();
+            return (hedgeWon ? hedge : primary).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("RPC call interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            primary.cancel(true);
+            if (backup != null) backup.cancel(true);
         }
-        s.openOrders = BigInteger.valueOf(open);
-        return s;
     }
 
-    public BigInteger getFillValueWei(String orderIdHex, BigInteger fillAmount) {
-        OrderView v = null;
-        try { v = getOrderView(orderIdHex); } catch (IOException e) { return null; }
-        if (v == null) return null;
-        return v.pricePerUnit.multiply(fillAmount).divide(PRICE_DECIMALS);
+    /** An endpoint that answers with throttling/overload errors counts as unhealthy. */
+    private static boolean overloaded(List<RpcResponse> responses) {
+        for (RpcResponse r : responses) {
+            if (r.error != null && RetryPolicy.isRetryable(r.error)) return true;
+        }
+        return false;
+    }
+
+    private List<RpcResponse> postRpc(String urlString, String jsonBody) throws IOException {
+        HttpResponse<InputStream> resp;
+        try {
+            resp = httpClient().send(jsonRequest(urlString, jsonBody), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("RPC call interrupted");
+        }
+        return readResponses(resp);
+    }
+
+    private CompletableFuture<List<RpcResponse>> postRpcAsync(String urlString, String jsonBody) {
+        CompletableFuture<HttpResponse<InputStream>> send =
+            httpClient().sendAsync(jsonRequest(urlString, jsonBody), HttpResponse.BodyHandlers.ofInputStream());
+        CompletableFuture<List<RpcResponse>> parsed = send.thenApply(resp -> {
+            try {
+                return readResponses(resp);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        parsed.whenComplete((r, err) -> {
+            if (err instanceof CancellationException) send.cancel(true);
+        });
+        return parsed;
+    }
+
+    private static List<RpcResponse> readResponses(HttpResponse<InputStream> resp) throws IOException {
+        try (InputStream is = resp.body()) {
+            if (resp.statusCode() != 200) {
+                throw new HttpStatusException(resp.statusCode(), new String(is.readAllBytes(), StandardCharsets.UTF_8),
+                    resp.headers().firstValue("Retry-After").map(HttpStatusException::parseRetryAfter).orElse(null));
+            }
+            return new JsonRpcReader(is).readResponses();
+        }
+    }
+
+    /**
+     * Sends all calldatas as one JSON-RPC array request (split into MAX_BATCH_CALLS chunks).
+     * Results come back in input order. Entries that fail with a retryable error (or get no
+     * response) are re-sent under the retry policy, which throws the error once it gives up; an
+     * error object without an id fails the whole chunk with the provider's error. Entries that
+     * revert or return a non-string result yield null at their position.
+     */
+    private List<String> ethCallBatch(String to, List<String> datas) throws IOException {
+        ViewCache cache = viewCache;
+        long block = pinnedBlock >= 0 ? pinnedBlock : cache != null ? cacheHead(cache) : -1;
+        String tag = block >= 0 ? blockTag(block) : "latest";
+        String[] results = new String[datas.size()];
+        List<Integer> misses = new ArrayList<>(datas.size());
+        for (int i = 0; i < datas.size(); i++) {
+            results[i] = cache != null ? cache.get(block, to, datas.get(i)) : null;
+            if (results[i] == null) misses.add(i);
+        }
+        for (int from = 0; from < misses.size(); from += MAX_BATCH_CALLS) {
+            List<Integer> pending = new ArrayList<>(misses.subList(from, Math.min(misses.size(), from + MAX_BATCH_CALLS)));
+            retryPolicy.call(() -> {
+                int n = pending.size();
+                StringBuilder body = new StringBuilder(n * 160).append('[');
+                for (int k = 0; k < n; k++) {
+                    if (k > 0) body.append(',');
+                    body.append(ethCallPayload(to, datas.get(pending.get(k)), tag, k));
+                }
+                body.append(']');
+                boolean[] done = new boolean[n];
+                RpcException retryable = null;
+                for (RpcResponse r : postRpc(body.toString())) {
+                    if (r.id < 0 && r.error != null) throw r.error; // batch-level error, e.g. batch too large
+                    if (r.id < 0 || r.id >= n || done[(int) r.id]) continue;
+                    if (r.error != null && RetryPolicy.isRetryable(r.error)) {
+                        retryable = r.error;
+                        continue;
+                    }
+                    done[(int) r.id] = true;
+                    if (r.error != null || !(r.result instanceof String)) continue; // reverted or undecodable: null
+                    int i = pending.get((int) r.id);
+                    results[i] = (String) r.result;
+                    if (cache != null) cache.put(block, to, datas.get(i), results[i], pinnedBlock >= 0);
+                }
+                List<Integer> left = new ArrayList<>();
+                for (int k = 0; k < n; k++) if (!done[k]) left.add(pending.get(k));
+                pending.retainAll(left);
+                if (pending.isEmpty()) return null;
+                throw retryable != null ? retryable : new IOException(pending.size() + " JSON-RPC batch entries got no response");
+            });
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * One eth_call per calldata on virtual threads (a bounded pool before JDK 21), at most
+     * {@code concurrency} in flight. Same contract as ethCallBatch: input order, null on revert.
+     */
+    private List<String> ethCallParallel(String to, List<String> datas, int concurrency) throws IOException {
+        Semaphore permits = new Semaphore(concurrency);
+        ExecutorService pool = scanExecutor();
+        List<Future<String>> futures = new ArrayList<>(datas.size());
+        try {
+            for (String data : datas) {
+                futures.add(pool.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return ethCall(to, data);
+                    } catch (RpcException e) {
+                        if (RetryPolicy.isRetryable(e)) throw e;
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            List<String> results = new ArrayList<>(datas.size());
+            for (Future<String> f : futures) results.add(f.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parallel scan interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            for (Future<String> f : futures) f.cancel(true);
+        }
+    }
+
+    /** Virtual threads on JDK 21+; otherwise daemon platform threads that exit after a minute idle. */
+    private static ExecutorService newScanExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "transacto-scan");
+                t.setDaemon(true);
+                return t;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // VIEW CACHE
+    // -------------------------------------------------------------------------
+
+    /**
+     * LRU cache of eth_call results keyed by (block, to, calldata). While enabled, reads are
+     * pinned to the cached head block, which is re-polled via eth_blockNumber at most once per
+     * head TTL; when the head advances, entries for older blocks are dropped. Entries read at an
+     * explicitly pinned block (atBlock/snapshot) are immutable history and survive head changes.
+     */
+    public static final class ViewCache {
+        private static final class Key {
+            final long block;
+            final String to;
+            final String data;
+            final boolean pinned; // not part of equality
+            final int hash;
+
+            Key(long block, String to, String data, boolean pinned) {
+                this.block = block;
+                this.to = to;
+                this.data = data;
+                this.pinned = pinned;
+                this.hash = (Long.hashCode(block) * 31 + to.hashCode()) * 31 + data.hashCode();
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Key)) return false;
+                Key k = (Key) o;
+                return block == k.block && to.equals(k.to) && data.equals(k.data);
+            }
+
+            @Override
+            public int hashCode() { return hash; }
+        }
+
+        private final int maxEntries;
+        private final long headTtlMs;
+        private final LinkedHashMap<Key, String> entries;
+        private long head = -1;
+        private long headCheckedAt;
+        private long hits;
+        private long misses;
+
+        public ViewCache(int maxEntries, Duration headTtl) {
+            this.maxEntries = maxEntries;
+            this.headTtlMs = headTtl.toMillis();
+            this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1 << 16), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                    return size() > ViewCache.this.maxEntries;
+                }
+            };
+        }
+
+        synchronized String get(long block, String to, String data) {
+            String v = entries.get(new Key(block, to, data, false));
+            if (v != null) hits++;
+            else misses++;
+            return v;
+        }
+
+        synchronized void put(long block, String to, String data, String result, boolean pinned) {
+            if (!pinned && block < head) return;
+            Key k = new Key(block, to, data, pinned);
+            if (pinned) entries.remove(k); // replace the key so the pinned flag sticks
+            entries.put(k, result);
+        }
+
+        /** Cached head if it was checked within the TTL, else -1. */
+        synchronized long freshHead() {
+            return head >= 0 && System.currentTimeMillis() - headCheckedAt < headTtlMs ? head : -1;
+        }
+
+        synchronized void onHead(long block) {
+            headCheckedAt = System.currentTimeMillis();
+            if (block <= head) return;
+            head = block;
+            entries.keySet().removeIf(k -> k.block < block && !k.pinned);
+        }
+
+        /** Drops every entry above {@code block}, pinned or not; used when those blocks were reorganised away. */
+        public synchronized void invalidateAfter(long block) {
+            entries.keySet().removeIf(k -> k.block > block);
+            if (head > block) head = -1;
+        }
+
+        public synchronized void clear() { entries.clear(); }
+        public synchronized int size() { return entries.size(); }
+        public synchronized long getHits() { return hits; }
+        public synchronized long getMisses() { return misses; }
+        public synchronized long getHead() { return head; }
+    }
+
+    // -------------------------------------------------------------------------
+    // ENDPOINT POOL
+    // -------------------------------------------------------------------------
+
+    /**
+     * Routes each request to the healthy endpoint with the lowest error-weighted EWMA latency.
+     * A circuit breaker ejects an endpoint after repeated failures for an exponentially growing
+     * cooldown, then re-admits it through a single half-open trial request.
+     */
+    public static final class EndpointPool {
+        private static final double EWMA_ALPHA = 0.2;
+        private static final double ERROR_PENALTY = 4.0;
+        private static final double EXPLORE_PROBABILITY = 0.05;
+        private static final int FAILURES_TO_OPEN = 3;
+        private static final double ERROR_RATE_TO_OPEN = 0.5;
+        private static final long BASE_COOLDOWN_MS = 1_000;
+        private static final long MAX_COOLDOWN_MS = 60_000;
+
+        public static final class Endpoint {
+            private final String url;
+            private double ewmaLatencyMs = -1; // no sample yet
+            private double errorRate;
+            private int consecutiveFailures;
+            private int trips;
+            private long openUntil; // 0 while the circuit is closed
+            private boolean trialInFlight;
+            private long requests;
+            private long failures;
+
+            Endpoint(String url) { this.url = url; }
+
+            public String getUrl() { return url; }
+            public synchronized double getEwmaLatencyMs() { return ewmaLatencyMs; }
+            public synchronized double getErrorRate() { return errorRate; }
+            public synchronized boolean isOpen() { return openUntil != 0; }
+            public synchronized long getRequests() { return requests; }
+            public synchronized long getFailures() { return failures; }
+
+            @Override
+            public synchronized String toString() {
+                return String.format("Endpoint{%s latencyMs=%.1f errorRate=%.2f open=%s}", url, ewmaLatencyMs, errorRate, openUntil != 0);
+            }
+        }
+
+        private final List<Endpoint> endpoints;
+
+        public EndpointPool(List<String> urls) {
+            List<Endpoint> list = new ArrayList<>(urls.size());
+            for (String u : urls) list.add(new Endpoint(u));
+            if (list.isEmpty()) throw new IllegalArgumentException("EndpointPool needs at least one URL");
+            this.endpoints = Collections.unmodifiableList(list);
+        }
+
+        public List<Endpoint> getEndpoints() { return endpoints; }
+
+        public Endpoint select() {
+            return select(null);
+        }
+
+        /** Best available endpoint other than {@code exclude}; with an exclusion, null if there is none. */
+        public synchronized Endpoint select(Endpoint exclude) {
+            long now = System.currentTimeMillis();
+            List<Endpoint> healthy = new ArrayList<>(endpoints.size());
+            Endpoint best = null;
+            double bestScore = Double.MAX_VALUE;
+            for (Endpoint e : endpoints) {
+                if (e == exclude) continue;
+                synchronized (e) {
+                    if (e.openUntil > now || (e.openUntil != 0 && e.trialInFlight)) continue;
+                    if (e.openUntil == 0) healthy.add(e);
+                    double score = Math.max(e.ewmaLatencyMs, 0) * (1 + ERROR_PENALTY * e.errorRate);
+                    if (score < bestScore) {
+                        best = e;
+                        bestScore = score;
+                    }
+                }
+            }
+            if (best == null && exclude != null) {
+                return null;
+            } else if (best == null) {
+                // Every circuit is open: fail open to the one that recovers soonest.
+                best = endpoints.get(0);
+                for (Endpoint e : endpoints) if (e.openUntil < best.openUntil) best = e;
+            } else if (healthy.size() > 1 && ThreadLocalRandom.current().nextDouble() < EXPLORE_PROBABILITY) {
+                best = healthy.get(ThreadLocalRandom.current().nextInt(healthy.size())); // keep latency samples fresh
+            }
+            synchronized (best) {
+                if (best.openUntil != 0 && best.openUntil <= now) best.trialInFlight = true;
+            }
+            return best;
+        }
+
+        public void record(Endpoint e, long latencyNanos, boolean ok) {
+            synchronized (e) {
+                e.requests++;
+                e.trialInFlight = false;
+                e.errorRate = EWMA_ALPHA * (ok ? 0 : 1) + (1 - EWMA_ALPHA) * e.errorRate;
+                if (ok) {
+                    double ms = latencyNanos / 1e6;
+                    e.ewmaLatencyMs = e.ewmaLatencyMs < 0 ? ms : EWMA_ALPHA * ms + (1 - EWMA_ALPHA) * e.ewmaLatencyMs;
+                    e.consecutiveFailures = 0;
+                    if (e.openUntil != 0) {
+                        e.openUntil = 0;
+                        e.trips = 0;
+                        e.errorRate = 0;
+                    }
+                    return;
+                }
+                e.failures++;
+                e.consecutiveFailures++;
+                boolean halfOpen = e.openUntil != 0;
+                if (halfOpen || e.consecutiveFailures >= FAILURES_TO_OPEN || e.errorRate >= ERROR_RATE_TO_OPEN) {
+                    e.trips++;
+                    e.openUntil = System.currentTimeMillis() + Math.min(MAX_COOLDOWN_MS, BASE_COOLDOWN_MS << Math.min(e.trips - 1, 16));
+                }
+            }
+        }
+
+        /**
+         * A request cancelled after {@code latencyNanos} (e.g. a hedge loser): not an error, but the
+         * endpoint was at least that slow, so the elapsed time can only raise its latency estimate.
+         */
+        void recordCancelled(Endpoint e, long latencyNanos) {
+            synchronized (e) {
+                e.trialInFlight = false;
+                double ms = latencyNanos / 1e6;
+                if (e.ewmaLatencyMs < 0) e.ewmaLatencyMs = ms;
+                else if (ms > e.ewmaLatencyMs) e.ewmaLatencyMs = EWMA_ALPHA * ms + (1 - EWMA_ALPHA) * e.ewmaLatencyMs;
+            }
+        }
+
+        /** Releases a half-open trial without counting it (e.g. the caller was interrupted). */
+        void abandon(Endpoint e) {
+            synchronized (e) {
+                e.trialInFlight = false;
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // REQUEST HEDGING
+    // -------------------------------------------------------------------------
+
+    /**
+     * Hedge delay is the given percentile of recent call latencies (a ring of the last
+     * LATENCY_WINDOW samples), floored at minDelay; until enough samples exist it is the
+     * initial delay. Counts how often hedges fire and how often the hedge wins.
+     */
+    public static final class HedgePolicy {
+        private static final int LATENCY_WINDOW = 512;
+        private static final int MIN_SAMPLES = 32;
+
+        private final double percentile;
+        private final long minDelayMs;
+        private final long initialDelayMs;
+        private final long[] latenciesNanos = new long[LATENCY_WINDOW];
+        private final long[] sorted = new long[LATENCY_WINDOW];
+        private volatile long delayMs;
+        private int samples;
+        private long calls;
+        private long hedgesFired;
+        private long hedgesWon;
+
+        public HedgePolicy(double percentile, Duration minDelay, Duration initialDelay) {
+            if (percentile <= 0 || percentile >= 100) throw new IllegalArgumentException("percentile must be in (0, 100)");
+            this.percentile = percentile;
+            this.minDelayMs = minDelay.toMillis();
+            this.initialDelayMs = initialDelay.toMillis();
+            this.delayMs = Math.max(minDelayMs, initialDelayMs);
+        }
+
+        /** p95 with a 5 ms floor and 250 ms until warmed up. */
+        public static HedgePolicy defaults() {
+            return new HedgePolicy(95, Duration.ofMillis(5), Duration.ofMillis(250));
+        }
+
+        /** The hedge delay, recomputed as each latency is recorded rather than per call. */
+        long delayMillis() { return delayMs; }
+
+        synchronized void recordLatency(long nanos) {
+            latenciesNanos[samples++ % LATENCY_WINDOW] = nanos;
+            calls++;
+            if (samples == 2 * LATENCY_WINDOW) samples = LATENCY_WINDOW; // keep the index bounded
+            int n = Math.min(samples, LATENCY_WINDOW);
+            if (n < MIN_SAMPLES) return;
+            System.arraycopy(latenciesNanos, 0, sorted, 0, n);
+            Arrays.sort(sorted, 0, n);
+            int rank = (int) Math.min(n - 1, Math.ceil(percentile / 100.0 * n) - 1);
+            delayMs = Math.max(minDelayMs, sorted[Math.max(0, rank)] / 1_000_000);
+        }
+
+        synchronized void recordHedge() { hedgesFired++; }
+        synchronized void recordHedgeWin() { hedgesWon++; }
+
+        public synchronized long getCalls() { return calls; }
+        public synchronized long getHedgesFired() { return hedgesFired; }
+        public synchronized long getHedgesWon() { return hedgesWon; }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("HedgePolicy{p%.0f calls=%d hedged=%d won=%d}", percentile, calls, hedgesFired, hedgesWon);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // RETRY POLICY
+    // -------------------------------------------------------------------------
+
+    interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Exponential backoff with full jitter: before retry n the caller sleeps a uniform random
+     * time in [0, min(maxDelay, baseDelay * 2^n)], or the server's Retry-After when it sent one.
+     * Retries stop after maxRetries or once the next sleep would overrun the per-call deadline.
+     */
+    public static final class RetryPolicy {
+        public static final RetryPolicy DEFAULT = new RetryPolicy(MAX_RPC_RETRIES,
+            Duration.ofMillis(RPC_RETRY_DELAY_MS), MAX_RPC_RETRY_DELAY, RPC_CALL_DEADLINE);
+        public static final RetryPolicy NONE = new RetryPolicy(0, Duration.ZERO, Duration.ZERO, RPC_CALL_DEADLINE);
+
+        private static final Set<Integer> RETRYABLE_HTTP = Set.of(408, 425, 429, 500, 502, 503, 504);
+        private static final Set<Long> RETRYABLE_RPC = Set.of(-32005L, -32603L, 429L);
+        private static final Pattern RETRYABLE_RPC_MESSAGE =
+            Pattern.compile("(?i)rate limit|too many requests|timeout|timed out|header not found|try again");
+
+        private final int maxRetries;
+        private final long baseDelayMs;
+        private final long maxDelayMs;
+        private final long deadlineMs;
+
+        public RetryPolicy(int maxRetries, Duration baseDelay, Duration maxDelay, Duration deadline) {
+            this.maxRetries = Math.max(0, maxRetries);
+            this.baseDelayMs = baseDelay.toMillis();
+            this.maxDelayMs = maxDelay.toMillis();
+            this.deadlineMs = deadline.toMillis();
+        }
+
+        public int getMaxRetries() { return maxRetries; }
+
+        /** Transport failures, throttling/5xx statuses and provider-overload RPC errors; never reverts or malformed replies. */
+        public static boolean isRetryable(Throwable e) {
+            if (e instanceof HttpStatusException) return RETRYABLE_HTTP.contains(((HttpStatusException) e).getStatusCode());
+            if (e instanceof RpcException) {
+                RpcException r = (RpcException) e;
+                return RETRYABLE_RPC.contains(r.getCode())
+                    || (r.getCode() == -32000 && RETRYABLE_RPC_MESSAGE.matcher(String.valueOf(r.getMessage())).find());
+            }
+            if (e instanceof java.net.http.HttpTimeoutException) return true;
+            if (e instanceof InterruptedIOException || e instanceof MalformedResponseException) return false;
+            return e instanceof IOException;
+        }
+
+        long delayMillis(int attempt, Throwable e) {
+            if (e instanceof HttpStatusException && ((HttpStatusException) e).getRetryAfter() != null) {
+                return ((HttpStatusException) e).getRetryAfter().toMillis();
+            }
+            long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt, 30));
+            return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+        }
+
+        /** Next sleep in ms, or -1 when the failure is final. */
+        private long nextDelay(int attempt, Throwable e, long deadline) {
+            if (attempt >= maxRetries || !isRetryable(e)) return -1;
+            long delay = delayMillis(attempt, e);
+            return System.currentTimeMillis() + delay < deadline ? delay : -1;
+        }
+
+        <T> T call(IoCall<T> call) throws IOException {
+            long deadline = System.currentTimeMillis() + deadlineMs;
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return call.call();
+                } catch (IOException e) {
+                    long delay = nextDelay(attempt, e, deadline);
+                    if (delay < 0) throw e;
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("RPC retry interrupted");
+                    }
+                }
+            }
+        }
+
+        <T> CompletableFuture<T> callAsync(java.util.function.Supplier<CompletableFuture<T>> call) {
+            return attemptAsync(call, 0, System.currentTimeMillis() + deadlineMs);
+        }
+
+        private <T> CompletableFuture<T> attemptAsync(java.util.function.Supplier<CompletableFuture<T>> call, int attempt, long deadline) {
+            return call.get().handle((value, err) -> {
+                if (err == null) return CompletableFuture.completedFuture(value);
+                Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                long delay = nextDelay(attempt, cause, deadline);
+                if (delay < 0) return CompletableFuture.<T>failedFuture(cause);
+                Executor later = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                return CompletableFuture.supplyAsync(() -> null, later).thenCompose(x -> attemptAsync(call, attempt + 1, deadline));
+            }).thenCompose(f -> f);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // JSON-RPC RESPONSE PARSING
+    // -------------------------------------------------------------------------
+
+    /** A JSON-RPC error object (code and message), e.g. -32000 "execution reverted". */
+    public static final class RpcException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final long code;
+
+        public RpcException(long code, String message) {
+            super("JSON-RPC error " + code + ": " + message);
+            this.code = code;
+        }
+
+        public long getCode() { return code; }
+    }
+
+    /** A reply that parsed as HTTP 200 but is not usable JSON-RPC (bad JSON, wrong shape); not retryable. */
+    public static final class MalformedResponseException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public MalformedResponseException(String message) {
+            super(message);
+        }
+    }
+
+    /** Non-200 HTTP reply from the RPC endpoint, with the server's Retry-After hint if any. */
+    public static final class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+        private final Duration retryAfter;
+
+        public HttpStatusException(int statusCode, String body, Duration retryAfter) {
+            super("HTTP " + statusCode + " " + body);
+            this.statusCode = statusCode;
+            this.retryAfter = retryAfter;
+        }
+
+        public int getStatusCode() { return statusCode; }
+        public Duration getRetryAfter() { return retryAfter; }
+
+        /** Retry-After is either delta-seconds or an HTTP-date; unparseable values are ignored. */
+        static Duration parseRetryAfter(String value) {
+            String v = value.trim();
+            try {
+                return Duration.ofSeconds(Math.max(0, Long.parseLong(v)));
+            } catch (NumberFormatException e) {
+                try {
+                    Duration d = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME));
+                    return d.isNegative() ? Duration.ZERO : d;
+                } catch (RuntimeException ignored) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    static final class RpcResponse {
+        long id = -1;
+        Object result;
+        RpcException error;
+
+        Object result() throws RpcException {
+            if (error != null) throw error;
+            return result;
+        }
+
+        /** result() for methods that return hex, such as eth_call; other JSON types are rejected. */
+        String stringResult() throws IOException {
+            Object r = result();
+            if (r != null && !(r instanceof String)) throw new MalformedResponseException("Expected a string JSON-RPC result, got " + r);
+            return (String) r;
+        }
+    }
+
+    /**
+     * Pull parser for JSON-RPC responses, reading the body stream incrementally. Accepts a single
+     * response object or a batch array; result strings are built straight from the stream.
+     */
+    static final class JsonRpcReader {
+        private final Reader in;
+        private int peeked = -2;
+
+        JsonRpcReader(InputStream is) {
+            this.in = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), 8192);
+        }
+
+        List<RpcResponse> readResponses() throws IOException {
+            List<RpcResponse> list = new ArrayList<>();
+            if (peekNonWs() != '[') {
+                list.add(readResponse());
+                return list;
+            }
+            read();
+            if (peekNonWs() == ']') {
+                read();
+                return list;
+            }
+            while (true) {
+                list.add(readResponse());
+                int c = readNonWs();
+                if (c == ']') return list;
+                if (c != ',') throw malformed(c);
+            }
+        }
+
+        private RpcResponse readResponse() throws IOException {
+            RpcResponse r = new RpcResponse();
+            expect('{');
+            if (peekNonWs() == '}') {
+                read();
+                return r;
+            }
+            while (true) {
+                String key = readString();
+                expect(':');
+                switch (key) {
+                    case "id": {
+                        Object id = readValue();
+                        if (id instanceof Long) r.id = (Long) id;
+                        else if (id instanceof String && ((String) id).matches("\\d{1,18}")) r.id = Long.parseLong((String) id);
+                        break;
+                    }
+                    case "result":
+                        r.result = readValue();
+                        break;
+                    case "error": {
+                        Object e = readValue();
+                        if (e instanceof Map) {
+                            Map<?, ?> m = (Map<?, ?>) e;
+                            Object code = m.get("code");
+                            r.error = new RpcException(code instanceof Long ? (Long) code : 0, String.valueOf(m.get("message")));
+                        } else {
+                            r.error = new RpcException(0, String.valueOf(e));
+                        }
+                        break;
+                    }
+                    default:
+                        readValue();
+                }
+                int c = readNonWs();
+                if (c == '}') return r;
+                if (c != ',') throw malformed(c);
+            }
+        }
+
+        private Object readValue() throws IOException {
+            int c = peekNonWs();
+            switch (c) {
+                case '"':
+                    return readString();
+                case '{': {
+                    read();
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    if (peekNonWs() == '}') {
+                        read();
+                        return map;
+                    }
+                    while (true) {
+                        String key = readString();
+                        expect(':');
+                        map.put(key, readValue());
+                        int d = readNonWs();
+                        if (d == '}') return map;
+                        if (d != ',') throw malformed(d);
+                    }
+                }
+                case '[': {
+                    read();
+                    List<Object> list = new ArrayList<>();
+                    if (peekNonWs() == ']') {
+                        read();
+                        return list;
+                    }
+                    while (true) {
+                        list.add(readValue());
+                        int d = readNonWs();
+                        if (d == ']') return list;
+                        if (d != ',') throw malformed(d);
+                    }
+                }
+                case 't':
+                    readLiteral("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    readLiteral("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    readLiteral("null");
+                    return null;
+                default:
+                    return readNumber();
+            }
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder sb = new StringBuilder(66);
+            while (true) {
+                int c = read();
+                if (c == '"') return sb.toString();
+                if (c < 0) throw malformed(c);
+                if (c != '\\') {
+                    sb.append((char) c);
+                    continue;
+                }
+                int e = read();
+                switch (e) {
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u': {
+                        int cp = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int h = read();
+                            int d = h < 0 ? -1 : Character.digit(h, 16);
+                            if (d < 0) throw malformed(h);
+                            cp = (cp << 4) | d;
+                        }
+                        sb.append((char) cp);
+                        break;
+                    }
+                    default:
+                        if (e < 0) throw malformed(e);
+                        sb.append((char) e);
+                }
+            }
+        }
+
+        private Object readNumber() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = peek()) >= 0 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9'))) {
+                sb.append((char) read());
+            }
+            if (sb.length() == 0) throw malformed(c);
+            String s = sb.toString();
+            try {
+                return Long.parseLong(s);
+            } catch (NumberFormatException e) {
+                try {
+                    return Double.parseDouble(s);
+                } catch (NumberFormatException e2) {
+                    throw new MalformedResponseException("Malformed JSON-RPC response: bad number '" + s + "'");
+                }
+            }
+        }
+
+        private void readLiteral(String lit) throws IOException {
+            for (int i = 0; i < lit.length(); i++) {
+                int c = read();
+                if (c != lit.charAt(i)) throw malformed(c);
+            }
+        }
+
+        private void expect(char want) throws IOException {
+            int c = readNonWs();
+            if (c != want) throw malformed(c);
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) peeked = in.read();
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            return c;
+        }
+
+        private int peekNonWs() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') read();
+            return c;
+        }
+
+        private int readNonWs() throws IOException {
+            peekNonWs();
+            return read();
+        }
+
+        private static IOException malformed(int c) {
+            return new MalformedResponseException(c < 0 ? "Malformed JSON-RPC response: unexpected end of input"
+                : "Malformed JSON-RPC response: unexpected '" + (char) c + "'");
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // CONTRACT VIEW CALLS (decode from 0x-prefixed hex)
+    // -------------------------------------------------------------------------
+
+    public BigInteger getOrderIdsLength() throws IOException {
+        String data = GET_ORDER_IDS_LENGTH_SELECTOR;
+        String result = ethCall(OTC_CONTRACT_ADDRESS, data);
+        if (result == null || result.length() < 66) return BigInteger.ZERO;
+        return new BigInteger(result.substring(2), 16);
+    }
+
+    public String getOrderAt(BigInteger index) throws IOException {
+        String data = GET_ORDER_AT_SELECTOR + padUint256(index);
+        String result = ethCall(OTC_CONTRACT_ADDRESS, data);
+        if (result == null || result.length() < 66) return null;
+        return HexId.canonical(result);
+    }
+
+    private static final AbiType BYTES32_ARRAY_ABI = AbiType.parse("bytes32[]");
+    private static final String GET_ORDER_IDS_RANGE_SIGNATURE = "getOrderIds(uint256,uint256)";
+
+    /**
+     * Every order id, read at one block: a single getOrderIds() call when the book holds at most
+     * MAX_ORDER_IDS_PER_CALL ids, otherwise pages of ranged reads.
+     */
+    public OrderIdList getOrderIds() throws IOException {
+        Transacto snap = snapshot();
+        long len = snap.getOrderIdsLength().longValueExact();
+        if (len <= MAX_ORDER_IDS_PER_CALL) {
+            try {
+                OrderIdList ids = decodeOrderIds(snap.ethCall(OTC_CONTRACT_ADDRESS, GET_ORDER_IDS_SELECTOR));
+                if (ids != null && ids.size() == len) return ids;
+            } catch (RpcException e) {
+                if (RetryPolicy.isRetryable(e)) throw e;
+            }
+        }
+        OrderIdList ids = new OrderIdList((int) Math.min(len, Integer.MAX_VALUE / 4));
+        for (long off = 0; off < len; off += MAX_ORDER_IDS_PER_CALL) {
+            snap.readOrderIds(off, (int) Math.min(MAX_ORDER_IDS_PER_CALL, len - off), ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Ids at indexes [offset, offset + limit), clipped to the book length, read with batched
+     * getOrderAt. With {@link #setOrderIdsRangeGetter} on, the assumed getOrderIds(uint256,uint256)
+     * getter is tried first; once it reverts or answers with the wrong count it is switched off
+     * for that client and its snapshots.
+     */
+    public OrderIdList getOrderIds(long offset, int limit) throws IOException {
+        if (offset < 0) throw new IllegalArgumentException("offset must be >= 0");
+        Transacto snap = snapshot();
+        long len = snap.getOrderIdsLength().longValueExact();
+        int count = (int) Math.max(0, Math.min(limit, len - offset));
+        OrderIdList ids = new OrderIdList(count);
+        if (count > 0) snap.readOrderIds(offset, count, ids);
+        return ids;
+    }
+
+    /** Appends exactly {@code count} ids starting at {@code offset} to {@code out}, or throws. */
+    private void readOrderIds(long offset, int count, OrderIdList out) throws IOException {
+        if (orderIdsRangeGetter.get()) {
+            String data = AbiWriter.get().selector(SelectorRegistry.selector(GET_ORDER_IDS_RANGE_SIGNATURE)).uint(offset).uint(count).toHex();
+            try {
+                OrderIdList page = decodeOrderIds(ethCall(OTC_CONTRACT_ADDRESS, data));
+                if (page != null && page.size() == count) {
+                    out.addAll(page);
+                    return;
+                }
+            } catch (RpcException e) {
+                if (RetryPolicy.isRetryable(e)) throw e;
+            }
+            orderIdsRangeGetter.set(false);
+        }
+        List<String> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) calls.add(AbiWriter.get().selector(GET_ORDER_AT_SELECTOR).uint(offset + i).toHex());
+        List<String> results = viewCalls(calls);
+        OrderIdList page = new OrderIdList(count);
+        for (int i = 0; i < count; i++) {
+            String r = results.get(i);
+            if (r == null || r.length() < 66) throw new IOException("getOrderAt(" + (offset + i) + ") returned no id");
+            page.add(r);
+        }
+        out.addAll(page);
+    }
+
+    /** Decodes a returned bytes32[] into a new list, or returns null if it is malformed. */
+    private static OrderIdList decodeOrderIds(String hex) {
+        AbiWords w = AbiWords.of(hex);
+        if (w == null || w.size() < 2) return null;
+        try {
+            AbiReader r = new AbiReader(w);
+            int at = r.root(BYTES32_ARRAY_ABI);
+            int n = r.length(BYTES32_ARRAY_ABI, at);
+            OrderIdList ids = new OrderIdList(n);
+            for (int i = 0; i < n; i++) ids.add(w, r.element(BYTES32_ARRAY_ABI, at, i));
+            return ids;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public OrderView getOrderViewByIndex(BigInteger index) throws IOException {
+        String data = GET_ORDER_VIEW_BY_INDEX_SELECTOR + padUint256(index);
+        String result = ethCall(OTC_CONTRACT_ADDRESS, data);
+        return decodeOrderView(result);
+    }
+
+    public OrderView getOrderView(String orderIdHex) throws IOException {
+        String data = GET_ORDER_VIEW_SELECTOR + padBytes32(orderIdHex);
+        String result = ethCall(OTC_CONTRACT_ADDRESS, data);
+        return decodeOrderView(result);
+    }
+
+    private OrderView decodeOrderView(String hex) {
+        AbiWords w = AbiWords.of(hex);
+        if (w == null || w.size() < 10) return null;
+        OrderView v = new OrderView();
+        v.orderId = HexId.canonical(w.getBytes32(0));
+        v.maker = HexId.canonical(w.getAddress(1));
+        v.assetType = w.getInt(2);
+        v.assetId = HexId.canonical(w.getBytes32(3));
+        v.amount = w.getUint(4);
+        v.pricePerUnit = w.getUint(5);
+        v.isSell = w.getBool(6);
+        v.filledAmount = w.getUint(7);
+        v.status = w.getInt(8);
+        v.createdAt = w.getUint(9);
+        return v;
+    }
+
+    /**
+     * Up to min(limit, OTC_VIEW_BATCH) views from {@code offset}. The book length is read in the
+     * same batch as the views, so a page costs one round trip; to walk the whole book use
+     * {@link #orderViewCursor()}.
+     */
+    public List<OrderView> getOrderViewsBatch(int offset, int limit) throws IOException {
+        int count = Math.min(limit, OTC_VIEW_BATCH.intValue());
+        if (count <= 0 || offset < 0) return Collections.emptyList();
+        List<String> calls = new ArrayList<>(count + 1);
+        calls.add(GET_ORDER_IDS_LENGTH_SELECTOR);
+        for (int i = 0; i < count; i++) calls.add(AbiWriter.get().selector(GET_ORDER_VIEW_BY_INDEX_SELECTOR).uint((long) offset + i).toHex());
+        List<String> results = viewCalls(calls);
+        if (results.get(0) == null) throw new IOException("getOrderIdsLength() failed in page at " + offset); // not end of book
+        BigInteger len = decodeUint(results.get(0));
+        List<OrderView> list = new ArrayList<>(count);
+        for (int i = 0; i < count && len.compareTo(BigInteger.valueOf((long) offset + i)) > 0; i++) {
+            OrderView v = decodeOrderView(results.get(i + 1));
+            if (v != null) list.add(v);
+        }
+        return list;
+    }
+
+    /** Cursor over the whole book from index 0, MAX_BATCH_CALLS views per page. */
+    public OrderViewCursor orderViewCursor() throws IOException {
+        return orderViewCursor(0, MAX_BATCH_CALLS);
+    }
+
+    /**
+     * Cursor from {@code position}, e.g. a saved {@link OrderViewCursor#position()}. The book
+     * length is read once here; orders appended later are left for the next scan.
+     */
+    public OrderViewCursor orderViewCursor(long position, int pageSize) throws IOException {
+        if (position < 0 || pageSize <= 0) throw new IllegalArgumentException("position must be >= 0 and pageSize > 0");
+        return new OrderViewCursor(this, position, getOrderIdsLength().longValueExact(), pageSize);
+    }
+
+    /** getOrderViewByIndex over [from, from + count) as one batch, aligned by index (null where undecodable). */
+    private OrderView[] getOrderViewsByIndex(long from, int count) throws IOException {
+        List<String> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) calls.add(AbiWriter.get().selector(GET_ORDER_VIEW_BY_INDEX_SELECTOR).uint(from + i).toHex());
+        List<String> results = viewCalls(calls);
+        OrderView[] views = new OrderView[count];
+        for (int i = 0; i < count; i++) views[i] = decodeOrderView(results.get(i));
+        return views;
+    }
+
+    /** Reads up to {@code count} summaries starting at {@code offset} via the contract's batch view. */
+    /** Throws IOException if the call reverts or its result cannot be decoded. */
+    public List<OrderSummary> getOrderSummariesBatch(int offset, int count) throws IOException {
+        String data = GET_ORDER_SUMMARIES_BATCH_SELECTOR + padUint256(BigInteger.valueOf(offset)) + padUint256(BigInteger.valueOf(count));
+        List<OrderSummary> page = decodeOrderSummaries(ethCall(OTC_CONTRACT_ADDRESS, data));
+        if (page == null) throw new IOException("Order summaries at offset " + offset + " could not be decoded");
+        return page;
+    }
+
+    /** Walks the whole book in OTC_VIEW_BATCH-sized pages of getOrderSummariesBatch, all at one block. */
+    public List<OrderSummary> getAllOrderSummaries() throws IOException {
+        Transacto snap = snapshot();
+        BigInteger len = snap.getOrderIdsLength();
+        List<OrderSummary> all = new ArrayList<>();
+        for (BigInteger off = BigInteger.ZERO; off.compareTo(len) < 0; off = off.add(OTC_VIEW_BATCH)) {
+            int count = len.subtract(off).min(OTC_VIEW_BATCH).intValue();
+            List<OrderSummary> page = snap.getOrderSummariesBatch(off.intValueExact(), count);
+            all.addAll(page);
+            if (page.size() < count) break; // contract returned a short page: end of book
+        }
+        return all;
+    }
+
+    private static final AbiType ORDER_SUMMARIES_ABI = AbiType.parse("(bytes32,address,uint256,uint256,uint256,bool,uint8)[]");
+
+    /** Decodes an ABI-encoded dynamic array of 7-word OrderSummary tuples; null if malformed. */
+    private static List<OrderSummary> decodeOrderSummaries(String hex) {
+        AbiWords w = AbiWords.of(hex);
+        if (w == null || w.size() < 2) return null;
+        try {
+            AbiReader r = new AbiReader(w);
+            return r.decodeList(ORDER_SUMMARIES_ABI, r.root(ORDER_SUMMARIES_ABI), Transacto::readOrderSummary, OrderSummary::new);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void readOrderSummary(AbiReader r, int word, OrderSummary o) {
+        AbiWords w = r.words();
+        o.orderId = HexId.canonical(w.getBytes32(word));
+        o.maker = HexId.canonical(w.getAddress(word + 1));
+        o.amount = w.getUint(word + 2);
+        o.filledAmount = w.getUint(word + 3);
+        o.pricePerUnit = w.getUint(word + 4);
+        o.isSell = w.getBool(word + 5);
+        o.status = w.getInt(word + 6);
+    }
+
+    public boolean isPlatformPaused() throws IOException {
+        String data = IS_PLATFORM_PAUSED_SELECTOR;
+        String result = ethCall(OTC_CONTRACT_ADDRESS, data);
+        if (result == null || result.length() < 66) return true;
+        return new BigInteger(result.substring(2), 16).signum() != 0;
+    }
+
+    public BigInteger getMinOrderWei() throws IOException {
+        String data = MIN_ORDER_SIZE_SELECTOR;
+        String result = ethCall(OTC_CONTRACT_ADDRESS, data);
+        if (result == null || result.length() < 66) return BigInteger.ZERO;
+        return new BigInteger(result.substring(2), 16);
+    }
+
+    public BigInteger getFeeBps() throws IOException {
+        String data = FEE_PERCENT_BPS_SELECTOR;
+        String result = ethCall(OTC_CONTRACT_ADDRESS, data);
+        if (result == null || result.length() < 66) return BigInteger.ZERO;
+        return new BigInteger(result.substring(2), 16);
+    }
+
+    /** Full-book stats; every read is pinned to one block so the counts are consistent. */
+    public PlatformStats getPlatformStats() throws IOException {
+        Transacto snap = snapshot();
+        PlatformStats s = snap.getPlatformStatsHead();
+        int open = 0;
+        for (OrderView v : snap.getOrderViewsByIndexRange(BigInteger.ZERO, s.totalOrders)) {
+            if (v.status == STATUS_OPEN) open++;
+        }
+        s.openOrders = BigInteger.valueOf(open);
+        return s;
+    }
+
+    /** Fetches every PlatformStats field except openOrders in a single batched round trip. */
+    private PlatformStats getPlatformStatsHead() throws IOException {
+        List<String> head = ethCallBatch(OTC_CONTRACT_ADDRESS, List.of(
+            GET_ORDER_IDS_LENGTH_SELECTOR, IS_PLATFORM_PAUSED_SELECTOR, MIN_ORDER_SIZE_SELECTOR, FEE_PERCENT_BPS_SELECTOR));
+        PlatformStats s = new PlatformStats();
+        s.blockNumber = pinnedBlock;
+        s.totalOrders = decodeUint(head.get(0));
+        s.paused = head.get(1) == null || head.get(1).length() < 66 || decodeUint(head.get(1)).signum() != 0;
+        s.minOrderWei = decodeUint(head.get(2));
+        s.feeBps = decodeUint(head.get(3));
+        return s;
+    }
+
+    /** Batched getOrderViewByIndex over [from, to); throws IOException if an entry cannot be decoded. */
+    private List<OrderView> getOrderViewsByIndexRange(BigInteger from, BigInteger to) throws IOException {
+        List<OrderView> list = new ArrayList<>();
+        int chunk = Math.max(MAX_BATCH_CALLS, scanConcurrency * 4);
+        List<String> calls = new ArrayList<>(chunk);
+        for (BigInteger i = from; i.compareTo(to) < 0; i = i.add(BigInteger.ONE)) {
+            calls.add(GET_ORDER_VIEW_BY_INDEX_SELECTOR + padUint256(i));
+            if (calls.size() == chunk || i.add(BigInteger.ONE).compareTo(to) == 0) {
+                List<String> results = viewCalls(calls);
+                for (int k = 0; k < results.size(); k++) {
+                    OrderView v = decodeOrderView(results.get(k));
+                    if (v == null) throw new IOException("Order at index " + i.subtract(BigInteger.valueOf(results.size() - 1 - k)) + " could not be decoded");
+                    list.add(v);
+                }
+                calls.clear();
+            }
+        }
+        return list;
+    }
+
+    /** Batched getOrderView; the result list is aligned with {@code orderIds} (null where undecodable). */
+    private List<OrderView> getOrderViewsByIds(List<String> orderIds) throws IOException {
+        List<String> calls = new ArrayList<>(orderIds.size());
+        for (String id : orderIds) calls.add(GET_ORDER_VIEW_SELECTOR + padBytes32(id));
+        List<OrderView> list = new ArrayList<>(orderIds.size());
+        for (String result : viewCalls(calls)) list.add(decodeOrderView(result));
+        return list;
+    }
+
+    /**
+     * Runs independent view calls against the Otc contract, as JSON-RPC batches or, when
+     * scanConcurrency > 1, as concurrent single calls. Results stay aligned with {@code datas}.
+     */
+    private List<String> viewCalls(List<String> datas) throws IOException {
+        if (scanConcurrency <= 1 || datas.size() <= 1) return ethCallBatch(OTC_CONTRACT_ADDRESS, datas);
+        return ethCallParallel(OTC_CONTRACT_ADDRESS, datas, scanConcurrency);
+    }
+
+    private static BigInteger decodeUint(String result) {
+        if (result == null || result.length() < 66) return BigInteger.ZERO;
+        return AbiWords.of(result).getUint(0);
+    }
+
+    public BigInteger getFillValueWei(String orderIdHex, BigInteger fillAmount) {
+        OrderView v = null;
+        try { v = getOrderView(orderIdHex); } catch (IOException e) { return null; }
+        if (v == null) return null;
+        return v.pricePerUnit.multiply(fillAmount).divide(PRICE_DECIMALS);
+    }
+
+    // -------------------------------------------------------------------------
+    // INCREMENTAL PLATFORM STATS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Keeps PlatformStats current without rescanning the whole book. State is a high-water mark
+     * of scanned indexes plus the ids still open; each refresh only fetches indexes past the mark
+     * and re-checks the open set. Persisted as text: the mark on line one, one open id per line.
+     */
+    public static final class PlatformStatsTracker {
+        private final Transacto client;
+        private final Path stateFile;
+        private BigInteger scannedUpTo = BigInteger.ZERO;
+        private final Set<String> openIds = new LinkedHashSet<>();
+
+        public PlatformStatsTracker(Transacto client, Path stateFile) throws IOException {
+            this.client = client;
+            this.stateFile = stateFile;
+            load();
+        }
+
+        public synchronized BigInteger getScannedUpTo() { return scannedUpTo; }
+        public synchronized Set<String> getOpenIds() { return new LinkedHashSet<>(openIds); }
+
+        public synchronized PlatformStats refresh() throws IOException {
+            Transacto client = this.client.snapshot();
+            PlatformStats s = client.getPlatformStatsHead();
+            if (!openIds.isEmpty()) {
+                List<String> ids = new ArrayList<>(openIds);
+                List<OrderView> views = client.getOrderViewsByIds(ids);
+                for (int i = 0; i < ids.size(); i++) {
+                    OrderView v = views.get(i);
+                    if (v != null && v.status != STATUS_OPEN) openIds.remove(ids.get(i));
+                }
+            }
+            long end = s.totalOrders.longValueExact();
+            int chunk = Math.max(MAX_BATCH_CALLS, client.scanConcurrency * 4);
+            for (long from = scannedUpTo.longValueExact(); from < end; from += chunk) {
+                OrderView[] views = client.getOrderViewsByIndex(from, (int) Math.min(chunk, end - from));
+                for (int i = 0; i < views.length; i++) {
+                    if (views[i] == null) {
+                        // the mark stops at the first undecodable index so it is retried next time
+                        scannedUpTo = BigInteger.valueOf(from + i);
+                        save();
+                        throw new IOException("Order at index " + (from + i) + " could not be decoded");
+                    }
+                    if (views[i].status == STATUS_OPEN) openIds.add(views[i].orderId);
+                }
+                scannedUpTo = BigInteger.valueOf(from + views.length);
+            }
+            s.openOrders = BigInteger.valueOf(openIds.size());
+            save();
+            return s;
+        }
+
+        private void load() throws IOException {
+            if (stateFile == null || !Files.exists(stateFile)) return;
+            List<String> lines = Files.readAllLines(stateFile, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) return;
+            scannedUpTo = new BigInteger(lines.get(0).trim());
+            for (String line : lines.subList(1, lines.size())) {
+                String id = line.trim();
+                if (HexId.isBytes32(id)) openIds.add(HexId.canonical(id));
+            }
+        }
+
+        private void save() throws IOException {
+            if (stateFile == null) return;
+            List<String> lines = new ArrayList<>(openIds.size() + 1);
+            lines.add(scannedUpTo.toString());
+            lines.addAll(openIds);
+            Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // EVENT-LOG ORDER BOOK SYNC
+    // -------------------------------------------------------------------------
+
+    /** Notified for every order whose state changes; {@code current} is null when an order is dropped. */
+    public interface OrderBookListener {
+        void onOrderChanged(OrderView previous, OrderView current, long blockNumber);
+    }
+
+    /**
+     * Keeps an in-memory book of OrderView current by following the Otc contract's
+     * OrderPosted/OrderFilled/OrderCancelled logs through paged eth_getLogs. Orders named in a
+     * page's logs are re-read at the page's last block in one batch, so the book never depends
+     * on event payload layout. The last {@code confirmations} blocks stay revertible: their hashes
+     * are remembered and, when the chain reorganises, orders touched after the common ancestor
+     * are re-read at the ancestor.
+     */
+    public static final class OrderBookSync {
+        private static final int DEFAULT_LOG_PAGE_BLOCKS = 2_000;
+        private static final String ZERO_ADDRESS = "0x0000000000000000000000000000000000000000";
+
+        private final Transacto client;
+        private final int confirmations;
+        private final Map<String, OrderView> book = new LinkedHashMap<>();
+        private final TreeMap<Long, String> blockHashes = new TreeMap<>();
+        private final TreeMap<Long, Set<String>> touched = new TreeMap<>();
+        private final List<OrderBookListener> listeners = new CopyOnWriteArrayList<>();
+        private long syncedBlock = -1;
+        private int logPageBlocks = DEFAULT_LOG_PAGE_BLOCKS;
+
+        public OrderBookSync(Transacto client, int confirmations) {
+            this.client = client;
+            this.confirmations = Math.max(1, confirmations);
+        }
+
+        public void addListener(OrderBookListener l) { listeners.add(l); }
+        public void removeListener(OrderBookListener l) { listeners.remove(l); }
+        public synchronized long getSyncedBlock() { return syncedBlock; }
+        public synchronized Map<String, OrderView> getBook() { return Collections.unmodifiableMap(new LinkedHashMap<>(book)); }
+        public synchronized OrderView getOrder(String orderId) { return book.get(orderId); }
+
+        /** Loads the whole book at the current head by index scan; polling continues from there. */
+        public synchronized void bootstrap() throws IOException {
+            Transacto snap = client.snapshot();
+            List<OrderView> all = snap.getOrderViewsByIndexRange(BigInteger.ZERO, snap.getOrderIdsLength());
+            restore(all, snap.getPinnedBlock());
+            blockHashes.put(syncedBlock, blockHash(syncedBlock));
+        }
+
+        /** Restores from an OrderSnapshotStore file if present; returns false when there is none. */
+        public synchronized boolean restore(OrderSnapshotStore store) throws IOException {
+            OrderSnapshotStore.Snapshot snap = store.load();
+            if (snap == null) return false;
+            restore(snap.orders, snap.lastBlock);
+            if (snap.lastBlockHash != null) blockHashes.put(snap.lastBlock, snap.lastBlockHash); // checked by the next poll()
+            return true;
+        }
+
+        /** Persists the current book and sync position to {@code store}. */
+        public synchronized void save(OrderSnapshotStore store) throws IOException {
+            store.write(book.values(), syncedBlock, blockHashes.get(syncedBlock));
+        }
+
+        /**
+         * Seeds the book from previously persisted state synced up to {@code blockNumber}.
+         * Listeners see every order replaced and a removal for each order no longer present.
+         */
+        public synchronized void restore(Collection<OrderView> orders, long blockNumber) {
+            Map<String, OrderView> dropped = new LinkedHashMap<>(book);
+            book.clear();
+            blockHashes.clear();
+            touched.clear();
+            for (OrderView v : orders) {
+                book.put(v.orderId, v);
+                fire(dropped.remove(v.orderId), v, blockNumber);
+            }
+            for (OrderView prev : dropped.values()) fire(prev, null, blockNumber);
+            syncedBlock = blockNumber;
+        }
+
+        /**
+         * Applies all logs up to the current head; returns the number of order changes applied.
+         * Call bootstrap() or restore() first.
+         */
+        public synchronized int poll() throws IOException {
+            if (syncedBlock < 0) throw new IllegalStateException("OrderBookSync not bootstrapped");
+            int changes = rollbackReorg();
+            long head = client.getBlockNumber();
+            while (syncedBlock < head) {
+                long from = syncedBlock + 1;
+                long to = Math.min(head, from + logPageBlocks - 1);
+                List<Map<?, ?>> logs;
+                try {
+                    logs = getLogs(from, to);
+                } catch (RpcException e) {
+                    if (to == from) throw e;
+                    logPageBlocks = Math.max(1, logPageBlocks / 2); // provider caps results or range per query
+                    continue;
+                }
+                changes += apply(logs, to);
+            }
+            long confirmed = head - confirmations;
+            blockHashes.headMap(confirmed, false).clear();
+            touched.headMap(confirmed, false).clear();
+            return changes;
+        }
+
+        private List<Map<?, ?>> getLogs(long from, long to) throws IOException {
+            String params = "[{\"address\":\"" + OTC_CONTRACT_ADDRESS + "\",\"fromBlock\":\"" + blockTag(from)
+                + "\",\"toBlock\":\"" + blockTag(to) + "\",\"topics\":[[\"" + ORDER_POSTED_TOPIC + "\",\""
+                + ORDER_FILLED_TOPIC + "\",\"" + ORDER_CANCELLED_TOPIC + "\"]]}]";
+            Object r = client.rpcCall("eth_getLogs", params);
+            if (!(r instanceof List)) throw new IOException("Bad eth_getLogs result: " + r);
+            List<Map<?, ?>> logs = new ArrayList<>();
+            for (Object o : (List<?>) r) {
+                if (o instanceof Map && !Boolean.TRUE.equals(((Map<?, ?>) o).get("removed"))) logs.add((Map<?, ?>) o);
+            }
+            return logs;
+        }
+
+        private int apply(List<Map<?, ?>> logs, long toBlock) throws IOException {
+            Map<String, Long> lastSeen = new LinkedHashMap<>();
+            for (Map<?, ?> log : logs) {
+                Object topics = log.get("topics");
+                if (!(topics instanceof List) || ((List<?>) topics).size() < 2) continue;
+                String orderId = HexId.canonical(String.valueOf(((List<?>) topics).get(1)));
+                long block = Long.parseLong(String.valueOf(log.get("blockNumber")).substring(2), 16);
+                lastSeen.merge(orderId, block, Math::max);
+                Object hash = log.get("blockHash");
+                if (hash instanceof String) blockHashes.put(block, (String) hash);
+            }
+            int changes = 0;
+            if (!lastSeen.isEmpty()) {
+                List<String> ids = new ArrayList<>(lastSeen.keySet());
+                List<OrderView> views = readOrders(ids, toBlock);
+                for (int i = 0; i < ids.size(); i++) {
+                    // keyed by the last touch: a reorg past it must re-read the order
+                    touched.computeIfAbsent(lastSeen.get(ids.get(i)), b -> new HashSet<>()).add(ids.get(i));
+                    if (replace(ids.get(i), views.get(i), toBlock)) changes++;
+                }
+            }
+            blockHashes.put(toBlock, blockHash(toBlock));
+            syncedBlock = toBlock;
+            return changes;
+        }
+
+        /** Detects a reorg below syncedBlock and re-reads touched orders at the common ancestor. */
+        private int rollbackReorg() throws IOException {
+            if (blockHashes.isEmpty() || blockHash(blockHashes.lastKey()).equals(blockHashes.lastEntry().getValue())) return 0;
+            long ancestor = -1;
+            for (Map.Entry<Long, String> e : blockHashes.descendingMap().entrySet()) {
+                if (blockHash(e.getKey()).equals(e.getValue())) {
+                    ancestor = e.getKey();
+                    break;
+                }
+            }
+            if (ancestor < 0) {
+                // e.g. the block of a restored snapshot was reorganised while the process was down
+                throw new IOException("Reorg below block " + blockHashes.firstKey() + ", deeper than tracked; bootstrap() again");
+            }
+            Set<String> ids = new LinkedHashSet<>();
+            for (Set<String> s : touched.tailMap(ancestor, false).values()) ids.addAll(s);
+            ViewCache cache = client.viewCache;
+            if (cache != null) cache.invalidateAfter(ancestor);
+            List<String> list = new ArrayList<>(ids);
+            List<OrderView> views = readOrders(list, ancestor);
+            touched.tailMap(ancestor, false).clear();
+            blockHashes.tailMap(ancestor, false).clear();
+            int changes = 0;
+            for (int i = 0; i < list.size(); i++) {
+                if (replace(list.get(i), views.get(i), ancestor)) changes++;
+            }
+            syncedBlock = ancestor;
+            return changes;
+        }
+
+        /**
+         * Reads {@code ids} at {@code block}, failing before any state changes if one could not be
+         * read: a missing view must not be mistaken for a deleted order.
+         */
+        private List<OrderView> readOrders(List<String> ids, long block) throws IOException {
+            if (ids.isEmpty()) return Collections.emptyList();
+            List<OrderView> views = client.atBlock(block).getOrderViewsByIds(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                if (views.get(i) == null) throw new IOException("Order " + ids.get(i) + " could not be read at block " + block);
+            }
+            return views;
+        }
+
+        /** Deleted orders read back with a zero maker. */
+        private boolean replace(String orderId, OrderView v, long block) {
+            boolean exists = !ZERO_ADDRESS.equals(v.maker);
+            OrderView prev = exists ? book.put(orderId, v) : book.remove(orderId);
+            if (prev == null && !exists) return false;
+            fire(prev, exists ? v : null, block);
+            return true;
+        }
+
+        private void fire(OrderView previous, OrderView current, long block) {
+            for (OrderBookListener l : listeners) l.onOrderChanged(previous, current, block);
+        }
+
+        private String blockHash(long block) throws IOException {
+            Object r = client.rpcCall("eth_getBlockByNumber", "[\"" + blockTag(block) + "\",false]");
+            if (!(r instanceof Map) || !(((Map<?, ?>) r).get("hash") instanceof String)) {
+                throw new IOException("Block " + block + " not available");
+            }
+            return (String) ((Map<?, ?>) r).get("hash");
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PRICE-LEVEL ORDER BOOK
+    // -------------------------------------------------------------------------
+
+    /**
+     * Open orders per (assetType, assetId), aggregated into price levels: bids (buy orders) best
+     * first by descending pricePerUnit, asks (sell orders) by ascending pricePerUnit. Each level
+     * sums remaining quantity (amount - filledAmount). Updates are O(log n); register it as an
+     * OrderBookListener or feed it with upsert/remove.
+     */
+    public static final class PriceLevelBook implements OrderBookListener {
+        /** Immutable snapshot of one price level. */
+        public static final class PriceLevel {
+            public final BigInteger price;
+            public final BigInteger remaining;
+            public final int orderCount;
+
+            PriceLevel(BigInteger price, BigInteger remaining, int orderCount) {
+                this.price = price;
+                this.remaining = remaining;
+                this.orderCount = orderCount;
+            }
+
+            @Override
+            public String toString() {
+                return String.format("PriceLevel{price=%s remaining=%s orders=%d}", price, remaining, orderCount);
+            }
+        }
+
+        private static final class AssetKey {
+            final int assetType;
+            final String assetId;
+
+            AssetKey(int assetType, String assetId) {
+                this.assetType = assetType;
+                this.assetId = HexId.canonical(assetId);
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof AssetKey && ((AssetKey) o).assetType == assetType && ((AssetKey) o).assetId.equals(assetId);
+            }
+
+            @Override
+            public int hashCode() { return assetType * 31 + assetId.hashCode(); }
+        }
+
+        private static final class Level {
+            BigInteger remaining = BigInteger.ZERO;
+            int orderCount;
+        }
+
+        private static final class AssetBook {
+            final TreeMap<BigInteger, Level> bids = new TreeMap<>(Comparator.reverseOrder());
+            final TreeMap<BigInteger, Level> asks = new TreeMap<>();
+
+            TreeMap<BigInteger, Level> side(boolean isSell) { return isSell ? asks : bids; }
+        }
+
+        private static final class Resting {
+            final AssetKey key;
+            final boolean isSell;
+            final BigInteger price;
+            final BigInteger remaining;
+
+            Resting(AssetKey key, boolean isSell, BigInteger price, BigInteger remaining) {
+                this.key = key;
+                this.isSell = isSell;
+                this.price = price;
+                this.remaining = remaining;
+            }
+        }
+
+        private final Map<AssetKey, AssetBook> books = new HashMap<>();
+        private final Map<String, Resting> resting = new HashMap<>();
+
+        @Override
+        public void onOrderChanged(OrderView previous, OrderView current, long blockNumber) {
+            if (current != null) upsert(current);
+            else if (previous != null) remove(previous.orderId);
+        }
+
+        /** Adds, moves or re-sizes an order; non-open or fully filled orders are removed. */
+        public synchronized void upsert(OrderView v) {
+            remove(v.orderId);
+            BigInteger remaining = v.amount.subtract(v.filledAmount);
+            if (v.status != STATUS_OPEN || remaining.signum() <= 0) return;
+            AssetKey key = new AssetKey(v.assetType, v.assetId);
+            Level level = books.computeIfAbsent(key, k -> new AssetBook()).side(v.isSell).computeIfAbsent(v.pricePerUnit, p -> new Level());
+            level.remaining = level.remaining.add(remaining);
+            level.orderCount++;
+            resting.put(v.orderId, new Resting(key, v.isSell, v.pricePerUnit, remaining));
+        }
+
+        public synchronized void remove(String orderId) {
+            Resting r = resting.remove(orderId);
+            if (r == null) return;
+            AssetBook book = books.get(r.key);
+            TreeMap<BigInteger, Level> side = book.side(r.isSell);
+            Level level = side.get(r.price);
+            level.remaining = level.remaining.subtract(r.remaining);
+            if (--level.orderCount == 0) side.remove(r.price);
+            if (book.bids.isEmpty() && book.asks.isEmpty()) books.remove(r.key);
+        }
+
+        public PriceLevel bestBid(int assetType, String assetId) { return best(assetType, assetId, false); }
+        public PriceLevel bestAsk(int assetType, String assetId) { return best(assetType, assetId, true); }
+
+        /** Up to {@code depth} bid levels, best first. */
+        public List<PriceLevel> bids(int assetType, String assetId, int depth) { return levels(assetType, assetId, false, depth); }
+
+        /** Up to {@code depth} ask levels, best first. */
+        public List<PriceLevel> asks(int assetType, String assetId, int depth) { return levels(assetType, assetId, true, depth); }
+
+        public synchronized int size() { return resting.size(); }
+
+        private synchronized PriceLevel best(int assetType, String assetId, boolean isSell) {
+            AssetBook book = books.get(new AssetKey(assetType, assetId));
+            if (book == null || book.side(isSell).isEmpty()) return null;
+            Map.Entry<BigInteger, Level> e = book.side(isSell).firstEntry();
+            return new PriceLevel(e.getKey(), e.getValue().remaining, e.getValue().orderCount);
+        }
+
+        private synchronized List<PriceLevel> levels(int assetType, String assetId, boolean isSell, int depth) {
+            AssetBook book = books.get(new AssetKey(assetType, assetId));
+            if (book == null) return Collections.emptyList();
+            List<PriceLevel> list = new ArrayList<>(Math.min(depth, book.side(isSell).size()));
+            for (Map.Entry<BigInteger, Level> e : book.side(isSell).entrySet()) {
+                if (list.size() >= depth) break;
+                list.add(new PriceLevel(e.getKey(), e.getValue().remaining, e.getValue().orderCount));
+            }
+            return list;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // MAKER INDEX
+    // -------------------------------------------------------------------------
+
+    /**
+     * Secondary index maker address -> status -> order ids, kept current as orders are loaded
+     * or updated (attach it to OrderBookSync, or call put/remove). Answers "my orders" queries
+     * without walking the book; maker addresses match case-insensitively.
+     */
+    public static final class MakerIndex implements OrderBookListener {
+        private final Map<String, Map<Integer, Set<String>>> byMaker = new HashMap<>();
+        private final Map<String, OrderView> orders = new HashMap<>();
+
+        @Override
+        public void onOrderChanged(OrderView previous, OrderView current, long blockNumber) {
+            if (current != null) put(current);
+            else if (previous != null) remove(previous.orderId);
+        }
+
+        public synchronized void putAll(Collection<OrderView> views) {
+            for (OrderView v : views) put(v);
+        }
+
+        public synchronized void put(OrderView v) {
+            remove(v.orderId);
+            orders.put(v.orderId, v);
+            byMaker.computeIfAbsent(makerKey(v.maker), m -> new HashMap<>())
+                .computeIfAbsent(v.status, s -> new LinkedHashSet<>())
+                .add(v.orderId);
+        }
+
+        public synchronized void remove(String orderId) {
+            OrderView old = orders.remove(orderId);
+            if (old == null) return;
+            String maker = makerKey(old.maker);
+            Map<Integer, Set<String>> statuses = byMaker.get(maker);
+            Set<String> ids = statuses.get(old.status);
+            ids.remove(orderId);
+            if (ids.isEmpty()) statuses.remove(old.status);
+            if (statuses.isEmpty()) byMaker.remove(maker);
+        }
+
+        public List<OrderView> getOpenOrders(String maker) { return getOrders(maker, STATUS_OPEN); }
+
+        public synchronized List<OrderView> getOrders(String maker, int status) {
+            Map<Integer, Set<String>> statuses = byMaker.get(makerKey(maker));
+            Set<String> ids = statuses != null ? statuses.get(status) : null;
+            if (ids == null) return Collections.emptyList();
+            List<OrderView> list = new ArrayList<>(ids.size());
+            for (String id : ids) list.add(orders.get(id));
+            return list;
+        }
+
+        public synchronized Set<String> getOpenOrderIds(String maker) {
+            Map<Integer, Set<String>> statuses = byMaker.get(makerKey(maker));
+            Set<String> ids = statuses != null ? statuses.get(STATUS_OPEN) : null;
+            return ids != null ? new LinkedHashSet<>(ids) : Collections.emptySet();
+        }
+
+        public synchronized int size() { return orders.size(); }
+
+        private static String makerKey(String maker) {
+            return maker == null ? "" : HexId.canonical(maker);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // ORDER FIELD CODEC
+    // -------------------------------------------------------------------------
+
+    /**
+     * Binary encodings of order fields shared by the snapshot store, the journal and the columnar
+     * stores: hex values as left-padded big-endian bytes or longs, uint256 as 32 bytes or four
+     * longs, most significant first. Writers all reject the same things: hex wider than its
+     * field, negative or over-256-bit amounts, and (for the columnar stores) small fields that
+     * do not fit their columns.
+     */
+    static final class OrderCodec {
+        static final char[] HEX = "0123456789abcdef".toCharArray();
+        private static final BigInteger TWO_64 = BigInteger.ONE.shiftLeft(64);
+
+        private OrderCodec() {}
+
+        /** createdAt must fit in a long and assetType/status in a byte. */
+        static void checkColumnar(OrderView v) {
+            if (v.createdAt.bitLength() > 63) throw new IllegalArgumentException("createdAt does not fit in a long: " + v.createdAt);
+            if (v.assetType < 0 || v.assetType > Byte.MAX_VALUE || v.status < 0 || v.status > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("assetType/status out of range for " + v.orderId);
+            }
+        }
+
+        private static String digits(String hex, int bytes) {
+            String h = hex == null ? "" : hex.startsWith("0x") || hex.startsWith("0X") ? hex.substring(2) : hex;
+            if (h.length() > bytes * 2) throw new IllegalArgumentException("Hex value wider than " + bytes + " bytes: " + hex);
+            return h;
+        }
+
+        private static BigInteger checkUint(BigInteger n) {
+            if (n == null) return BigInteger.ZERO;
+            if (n.signum() < 0 || n.bitLength() > 256) throw new IllegalArgumentException("Not a uint256: " + n);
+            return n;
+        }
+
+        /** Writes {@code hex} as {@code bytes} big-endian bytes at {@code pos}, left-padded with zeros. */
+        static void putHex(ByteBuffer buf, int pos, String hex, int bytes) {
+            String h = digits(hex, bytes);
+            int pad = bytes * 2 - h.length();
+            for (int b = 0; b < bytes; b++) {
+                int hi = 2 * b - pad;
+                int v = (hi >= 0 ? AbiWords.digit(h.charAt(hi)) << 4 : 0) | (hi + 1 >= 0 ? AbiWords.digit(h.charAt(hi + 1)) : 0);
+                buf.put(pos + b, (byte) v);
+            }
+        }
+
+        /** {@code bytes} bytes at {@code pos} as 0x-prefixed lowercase hex. */
+        static String hex(ByteBuffer buf, int pos, int bytes) {
+            char[] out = new char[2 + bytes * 2];
+            out[0] = '0';
+            out[1] = 'x';
+            for (int b = 0; b < bytes; b++) {
+                int v = buf.get(pos + b);
+                out[2 + 2 * b] = HEX[(v >> 4) & 0xF];
+                out[3 + 2 * b] = HEX[v & 0xF];
+            }
+            return new String(out);
+        }
+
+        static void putUint(ByteBuffer buf, int pos, BigInteger n) {
+            n = checkUint(n);
+            if (n.bitLength() < 64) {
+                buf.putLong(pos, 0).putLong(pos + 8, 0).putLong(pos + 16, 0).putLong(pos + 24, n.longValue());
+                return;
+            }
+            byte[] b = n.toByteArray();
+            int len = Math.min(b.length, 32); // drop toByteArray's sign byte on full 256-bit values
+            for (int k = 0; k < 32 - len; k++) buf.put(pos + k, (byte) 0);
+            buf.put(pos + 32 - len, b, b.length - len, len);
+        }
+
+        static boolean fitsLong(ByteBuffer buf, int pos) {
+            return buf.getLong(pos) == 0 && buf.getLong(pos + 8) == 0 && buf.getLong(pos + 16) == 0 && buf.getLong(pos + 24) >= 0;
+        }
+
+        /** The uint256 at {@code pos}; {@code scratch} is 32 bytes, used only for wide values. */
+        static BigInteger getUint(ByteBuffer buf, int pos, byte[] scratch) {
+            if (fitsLong(buf, pos)) return BigInteger.valueOf(buf.getLong(pos + 24));
+            buf.get(pos, scratch, 0, 32);
+            return new BigInteger(1, scratch);
+        }
+
+        /** Packs a big-endian hex value of {@code bytes} bytes (left-padded) into consecutive longs. */
+        static void hexToLongs(String hex, long[] out, int off, int bytes) {
+            String h = digits(hex, bytes);
+            int nibbles = bytes * 2;
+            int pad = nibbles - h.length();
+            int longs = (bytes + 7) / 8;
+            for (int k = 0; k < longs; k++) {
+                long w = 0;
+                int from = k * 16;
+                int to = Math.min(from + 16, nibbles);
+                for (int n = from; n < to; n++) w = (w << 4) | (n < pad ? 0 : AbiWords.digit(h.charAt(n - pad)));
+                out[off + k] = w;
+            }
+        }
+
+        static String longsToHex(long[] in, int off, int bytes) {
+            int nibbles = bytes * 2;
+            char[] out = new char[2 + nibbles];
+            out[0] = '0';
+            out[1] = 'x';
+            for (int n = 0; n < nibbles; n++) {
+                int k = n / 16;
+                int width = Math.min(16, nibbles - k * 16); // nibbles held by this long
+                int shift = (width - 1 - (n - k * 16)) * 4;
+                out[2 + n] = HEX[(int) (in[off + k] >>> shift) & 0xF];
+            }
+            return new String(out);
+        }
+
+        /** Writes a uint256 as four longs at {@code off}. */
+        static void putUint(long[] words, int off, BigInteger n) {
+            n = checkUint(n);
+            if (n.bitLength() < 64) {
+                words[off] = words[off + 1] = words[off + 2] = 0;
+                words[off + 3] = n.longValue();
+                return;
+            }
+            for (int k = 3; k >= 0; k--) {
+                words[off + k] = n.longValue();
+                n = n.shiftRight(64);
+            }
+        }
+
+        static boolean fitsLong(long[] words, int off) {
+            return words[off] == 0 && words[off + 1] == 0 && words[off + 2] == 0 && words[off + 3] >= 0;
+        }
+
+        static BigInteger getUint(long[] words, int off) {
+            if (fitsLong(words, off)) return BigInteger.valueOf(words[off + 3]);
+            BigInteger n = BigInteger.ZERO;
+            for (int k = 0; k < 4; k++) {
+                long w = words[off + k];
+                n = n.shiftLeft(64).add(w >= 0 ? BigInteger.valueOf(w) : BigInteger.valueOf(w).add(TWO_64));
+            }
+            return n;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // ORDER SNAPSHOT STORE (memory-mapped)
+    // -------------------------------------------------------------------------
+
+    /**
+     * Persists OrderView records in a memory-mapped file so a restart can load the book
+     * without RPC and only sync the delta. Layout: a 64-byte header (magic, version, record
+     * count, last synced block, that block's 32-byte hash or zeros) followed by fixed-width records of ten
+     * 32-byte big-endian words in getOrderView's ABI order. Writes go to a temp file that is
+     * atomically moved into place.
+     */
+    public static final class OrderSnapshotStore {
+        private static final int MAGIC = 0x54584F53; // "TXOS"
+        private static final int VERSION = 2; // 1 stored an unused order index where the hash now is
+        private static final int HEADER_BYTES = 64;
+        private static final int WORDS_PER_RECORD = 10;
+        static final int RECORD_BYTES = WORDS_PER_RECORD * 32;
+
+        /** Loaded file contents. */
+        public static final class Snapshot {
+            public final List<OrderView> orders;
+            public final long lastBlock;
+            /** Hash of lastBlock when it was written, or null if unknown. */
+            public final String lastBlockHash;
+
+            Snapshot(List<OrderView> orders, long lastBlock, String lastBlockHash) {
+                this.orders = orders;
+                this.lastBlock = lastBlock;
+                this.lastBlockHash = lastBlockHash;
+            }
+        }
+
+        private final Path file;
+
+        public OrderSnapshotStore(Path file) {
+            this.file = file;
+        }
+
+        public Path getFile() { return file; }
+
+        /** Writes all orders plus the block they reflect and its hash (null if unknown). */
+        public void write(Collection<OrderView> orders, long lastBlock, String lastBlockHash) throws IOException {
+            long size = HEADER_BYTES + (long) orders.size() * RECORD_BYTES;
+            if (size > Integer.MAX_VALUE) throw new IOException("Snapshot too large for a single mapping: " + orders.size() + " orders");
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buf.putInt(MAGIC).putInt(VERSION).putLong(orders.size()).putLong(lastBlock);
+                putHex(buf, lastBlockHash);
+                buf.position(HEADER_BYTES);
+                for (OrderView v : orders) putRecord(buf, v);
+                buf.force();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /** Reads the snapshot, or returns null if the file does not exist. */
+        public Snapshot load() throws IOException {
+            if (!Files.exists(file)) return null;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = ch.size();
+                if (size < HEADER_BYTES) throw new IOException("Snapshot truncated: " + file);
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (buf.getInt() != MAGIC) throw new IOException("Not an order snapshot: " + file);
+                int version = buf.getInt();
+                if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+                long count = buf.getLong();
+                long lastBlock = buf.getLong();
+                String lastBlockHash = null;
+                if (version == VERSION) {
+                    String h = getHex(buf, 0);
+                    if (!h.matches("0x0+")) lastBlockHash = h;
+                }
+                if (count < 0) throw new IOException("Corrupt snapshot record count " + count + ": " + file);
+                if (count > (size - HEADER_BYTES) / RECORD_BYTES) throw new IOException("Snapshot truncated: " + file);
+                List<OrderView> orders = new ArrayList<>((int) count);
+                byte[] word = new byte[32];
+                for (int i = 0; i < count; i++) {
+                    buf.position(HEADER_BYTES + i * RECORD_BYTES);
+                    orders.add(getRecord(buf, word));
+                }
+                return new Snapshot(orders, lastBlock, lastBlockHash);
+            }
+        }
+
+        /** Writes one RECORD_BYTES record at the buffer's position. */
+        static void putRecord(ByteBuffer buf, OrderView v) {
+            putHex(buf, v.orderId);
+            putHex(buf, v.maker);
+            putUint(buf, BigInteger.valueOf(v.assetType));
+            putHex(buf, v.assetId);
+            putUint(buf, v.amount);
+            putUint(buf, v.pricePerUnit);
+            putUint(buf, v.isSell ? BigInteger.ONE : BigInteger.ZERO);
+            putUint(buf, v.filledAmount);
+            putUint(buf, BigInteger.valueOf(v.status));
+            putUint(buf, v.createdAt);
+        }
+
+        /** Reads one RECORD_BYTES record; {@code word} is 32 bytes of scratch space. */
+        static OrderView getRecord(ByteBuffer buf, byte[] word) {
+            OrderView v = new OrderView();
+            v.orderId = HexId.canonical(getHex(buf, 0));
+            v.maker = HexId.canonical(getHex(buf, 12));
+            v.assetType = getUint(buf, word).intValue();
+            v.assetId = HexId.canonical(getHex(buf, 0));
+            v.amount = getUint(buf, word);
+            v.pricePerUnit = getUint(buf, word);
+            v.isSell = getUint(buf, word).signum() != 0;
+            v.filledAmount = getUint(buf, word);
+            v.status = getUint(buf, word).intValue();
+            v.createdAt = getUint(buf, word);
+            return v;
+        }
+
+        private static void putUint(ByteBuffer buf, BigInteger n) {
+            int p = buf.position();
+            OrderCodec.putUint(buf, p, n);
+            buf.position(p + 32);
+        }
+
+        /** Writes hex as one left-padded 32-byte word at the buffer's position. */
+        static void putHex(ByteBuffer buf, String hex) {
+            int p = buf.position();
+            OrderCodec.putHex(buf, p, hex, 32);
+            buf.position(p + 32);
+        }
+
+        private static BigInteger getUint(ByteBuffer buf, byte[] word) {
+            int p = buf.position();
+            buf.position(p + 32);
+            return OrderCodec.getUint(buf, p, word);
+        }
+
+        /** Reads a word and renders bytes [from, 32) as 0x-prefixed lowercase hex. */
+        static String getHex(ByteBuffer buf, int from) {
+            int p = buf.position();
+            buf.position(p + 32);
+            return OrderCodec.hex(buf, p + from, 32 - from);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // ORDER STATE JOURNAL
+    // -------------------------------------------------------------------------
+
+    /**
+     * Append-only write-ahead journal of observed order transitions, split into numbered segment
+     * files that rotate at a size limit. Each entry is framed as [int length][int crc32][payload];
+     * the payload holds the block, the status before and after (-1 = absent), the fill delta and
+     * the full resulting order record, so replay alone can rebuild the book. A torn tail left by
+     * a crash is detected by its checksum and truncated on open. compact() folds everything into
+     * an OrderSnapshotStore and deletes the covered segments.
+     */
+    public static final class OrderJournal implements OrderBookListener, Closeable {
+        private static final String SEGMENT_PREFIX = "journal-";
+        private static final String SEGMENT_SUFFIX = ".log";
+        private static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+        private static final int FIXED_PAYLOAD_BYTES = 8 + 1 + 1 + 1 + 32 + 1; // block, from, to, delta len, delta, has-order
+
+        /** One logged transition; {@code order} is null when the order left the book. */
+        public static final class Transition {
+            public final long blockNumber;
+            public final String orderId;
+            public final int fromStatus;
+            public final int toStatus;
+            public final BigInteger fillDelta;
+            public final OrderView order;
+
+            Transition(long blockNumber, String orderId, int fromStatus, int toStatus, BigInteger fillDelta, OrderView order) {
+                this.blockNumber = blockNumber;
+                this.orderId = orderId;
+                this.fromStatus = fromStatus;
+                this.toStatus = toStatus;
+                this.fillDelta = fillDelta;
+                this.order = order;
+            }
+        }
+
+        private final Path dir;
+        private final long maxSegmentBytes;
+        private final boolean syncEachAppend;
+        private FileChannel segment;
+        private long segmentNumber;
+        private final ByteBuffer frame = ByteBuffer.allocate(8 + FIXED_PAYLOAD_BYTES + OrderSnapshotStore.RECORD_BYTES);
+        private final java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+
+        public OrderJournal(Path dir) throws IOException {
+            this(dir, DEFAULT_SEGMENT_BYTES, false);
+        }
+
+        public OrderJournal(Path dir, long maxSegmentBytes, boolean syncEachAppend) throws IOException {
+            this.dir = dir;
+            this.maxSegmentBytes = maxSegmentBytes;
+            this.syncEachAppend = syncEachAppend;
+            Files.createDirectories(dir);
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                openSegment(1);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                segmentNumber = segmentNumber(last);
+                segment = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                segment.truncate(validLength(last)); // drop a torn tail from a crash mid-append
+                segment.position(segment.size());
+            }
+        }
+
+        @Override
+        public void onOrderChanged(OrderView previous, OrderView current, long blockNumber) {
+            try {
+                append(previous, current, blockNumber);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public synchronized void append(OrderView previous, OrderView current, long blockNumber) throws IOException {
+            OrderView ref = current != null ? current : previous;
+            if (ref == null) return;
+            BigInteger before = previous != null ? previous.filledAmount : BigInteger.ZERO;
+            BigInteger after = current != null ? current.filledAmount : before;
+            byte[] delta = after.subtract(before).toByteArray();
+            if (delta.length > 32) throw new IOException("Fill delta out of range for " + ref.orderId);
+            frame.clear();
+            frame.position(8);
+            frame.putLong(blockNumber);
+            frame.put((byte) (previous != null ? previous.status : -1));
+            frame.put((byte) (current != null ? current.status : -1));
+            frame.put((byte) delta.length).put(delta).position(frame.position() + 32 - delta.length);
+            if (current != null) {
+                frame.put((byte) 1);
+                OrderSnapshotStore.putRecord(frame, current);
+            } else {
+                frame.put((byte) 0);
+                OrderSnapshotStore.putHex(frame, previous.orderId);
+            }
+            int payload = frame.position() - 8;
+            crc.reset();
+            crc.update(frame.array(), 8, payload);
+            frame.putInt(0, payload).putInt(4, (int) crc.getValue());
+            frame.flip();
+            if (segment.size() + frame.remaining() > maxSegmentBytes && segment.size() > 0) openSegment(segmentNumber + 1);
+            while (frame.hasRemaining()) segment.write(frame);
+            if (syncEachAppend) segment.force(false);
+        }
+
+        public synchronized void sync() throws IOException {
+            segment.force(false);
+        }
+
+        /**
+         * Feeds every entry, oldest first, to {@code consumer}; returns the last block seen. Only the
+         * tail of the newest segment may be torn; a bad entry anywhere else throws rather than
+         * leaving a silent gap.
+         */
+        public synchronized long replay(java.util.function.Consumer<Transition> consumer) throws IOException {
+            long lastBlock = -1;
+            List<Path> segments = segments();
+            for (int i = 0; i < segments.size(); i++) {
+                Path p = segments.get(i);
+                ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(p));
+                Transition t;
+                while ((t = next(buf)) != null) {
+                    consumer.accept(t);
+                    lastBlock = t.blockNumber;
+                }
+                if (buf.hasRemaining() && i < segments.size() - 1) {
+                    throw new IOException("Corrupt journal entry in " + p.getFileName() + " at offset " + buf.position());
+                }
+            }
+            return lastBlock;
+        }
+
+        /** Rebuilds a book by replay on top of {@code book} (e.g. a loaded snapshot); returns the last block. */
+        public long replayInto(Map<String, OrderView> book) throws IOException {
+            return replay(t -> {
+                if (t.order != null) book.put(t.orderId, t.order);
+                else book.remove(t.orderId);
+            });
+        }
+
+        /**
+         * Writes {@code book} at {@code blockNumber} to {@code store}, then starts a fresh segment and
+         * deletes the older ones. The book must reflect every entry appended so far.
+         */
+        public void compact(OrderSnapshotStore store, Collection<OrderView> book, long blockNumber) throws IOException {
+            compact(store, book, blockNumber, null);
+        }
+
+        /** As compact(store, book, blockNumber), recording {@code blockHash} for reorg checks on restore. */
+        public synchronized void compact(OrderSnapshotStore store, Collection<OrderView> book, long blockNumber, String blockHash) throws IOException {
+            store.write(book, blockNumber, blockHash);
+            long keep = segmentNumber + 1;
+            openSegment(keep);
+            for (Path p : segments()) {
+                if (segmentNumber(p) < keep) Files.deleteIfExists(p);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            segment.close();
+        }
+
+        private void openSegment(long number) throws IOException {
+            if (segment != null) {
+                segment.force(false);
+                segment.close();
+            }
+            segmentNumber = number;
+            segment = FileChannel.open(dir.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment.position(segment.size());
+        }
+
+        private List<Path> segments() throws IOException {
+            List<Path> list = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                for (Path p : ds) list.add(p);
+            }
+            list.sort(Comparator.comparingLong(OrderJournal::segmentNumber));
+            return list;
+        }
+
+        private static long segmentNumber(Path p) {
+            String name = p.getFileName().toString();
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+
+        private long validLength(Path p) throws IOException {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(p));
+            int end = 0;
+            while (next(buf) != null) end = buf.position();
+            return end;
+        }
+
+        /** Decodes the entry at the buffer's position, or returns null at the end or on a bad checksum. */
+        private Transition next(ByteBuffer buf) {
+            if (buf.remaining() < 8) return null;
+            int start = buf.position();
+            int len = buf.getInt();
+            int sum = buf.getInt();
+            if (len < FIXED_PAYLOAD_BYTES + 32 || len > buf.remaining()) {
+                buf.position(start);
+                return null;
+            }
+            crc.reset();
+            crc.update(buf.array(), buf.position(), len);
+            if ((int) crc.getValue() != sum) {
+                buf.position(start);
+                return null;
+            }
+            long block = buf.getLong();
+            int from = buf.get();
+            int to = buf.get();
+            byte[] delta = new byte[buf.get()];
+            buf.get(delta);
+            buf.position(buf.position() + 32 - delta.length);
+            boolean hasOrder = buf.get() != 0;
+            byte[] word = new byte[32];
+            OrderView order = hasOrder ? OrderSnapshotStore.getRecord(buf, word) : null;
+            String orderId = hasOrder ? order.orderId : HexId.canonical(OrderSnapshotStore.getHex(buf, 0));
+            return new Transition(block, orderId, from, to, delta.length == 0 ? BigInteger.ZERO : new BigInteger(delta), order);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // COMPACT COLUMNAR ORDERS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Columnar, primitive-only storage for large order histories (~200 bytes per order versus
+     * 500+ for an OrderView). Ids and asset ids are four big-endian longs, makers three (the
+     * last holds 4 bytes), uint256 amounts four longs, most significant first, with long fast
+     * paths when the value fits. createdAt must fit in a long; assetType and status in a byte.
+     */
+    public static final class CompactOrders {
+        private int size;
+        private long[] ids;
+        private long[] makers;
+        private long[] assetIds;
+        private long[] amounts;
+        private long[] prices;
+        private long[] filled;
+        private long[] createdAt;
+        private byte[] assetTypes;
+        private byte[] statuses;
+        private boolean[] sells;
+
+        public CompactOrders() {
+            this(1024);
+        }
+
+        public CompactOrders(int capacity) {
+            allocate(Math.max(16, capacity));
+        }
+
+        public static CompactOrders of(Collection<OrderView> views) {
+            CompactOrders c = new CompactOrders(views.size());
+            for (OrderView v : views) c.add(v);
+            return c;
+        }
+
+        public int size() { return size; }
+
+        public int add(OrderView v) {
+            if (size == createdAt.length) allocate(size * 2);
+            write(size, v);
+            return size++;
+        }
+
+        public void set(int i, OrderView v) {
+            check(i);
+            write(i, v);
+        }
+
+        private void write(int i, OrderView v) {
+            OrderCodec.checkColumnar(v);
+            OrderCodec.hexToLongs(v.orderId, ids, i * 4, 32);
+            OrderCodec.hexToLongs(v.maker, makers, i * 3, 20);
+            OrderCodec.hexToLongs(v.assetId, assetIds, i * 4, 32);
+            OrderCodec.putUint(amounts, i * 4, v.amount);
+            OrderCodec.putUint(prices, i * 4, v.pricePerUnit);
+            OrderCodec.putUint(filled, i * 4, v.filledAmount);
+            createdAt[i] = v.createdAt.longValue();
+            assetTypes[i] = (byte) v.assetType;
+            statuses[i] = (byte) v.status;
+            sells[i] = v.isSell;
+        }
+
+        /** Materialises order {@code i} as an OrderView. */
+        public OrderView get(int i) {
+            check(i);
+            OrderView v = new OrderView();
+            v.orderId = OrderCodec.longsToHex(ids, i * 4, 32); // already canonical; not interned on bulk reads
+            v.maker = OrderCodec.longsToHex(makers, i * 3, 20);
+            v.assetType = assetTypes[i];
+            v.assetId = OrderCodec.longsToHex(assetIds, i * 4, 32);
+            v.amount = OrderCodec.getUint(amounts, i * 4);
+            v.pricePerUnit = OrderCodec.getUint(prices, i * 4);
+            v.isSell = sells[i];
+            v.filledAmount = OrderCodec.getUint(filled, i * 4);
+            v.status = statuses[i];
+            v.createdAt = BigInteger.valueOf(createdAt[i]);
+            return v;
+        }
+
+        public String orderId(int i) { check(i); return OrderCodec.longsToHex(ids, i * 4, 32); }
+        public String maker(int i) { check(i); return OrderCodec.longsToHex(makers, i * 3, 20); }
+        public int assetType(int i) { check(i); return assetTypes[i]; }
+        public int status(int i) { check(i); return statuses[i]; }
+        public boolean isSell(int i) { check(i); return sells[i]; }
+        public long createdAt(int i) { check(i); return createdAt[i]; }
+        public BigInteger amount(int i) { check(i); return OrderCodec.getUint(amounts, i * 4); }
+        public BigInteger pricePerUnit(int i) { check(i); return OrderCodec.getUint(prices, i * 4); }
+        public BigInteger filledAmount(int i) { check(i); return OrderCodec.getUint(filled, i * 4); }
+
+        /** True when amount, filledAmount and pricePerUnit of order {@code i} all fit in a long. */
+        public boolean fitsLong(int i) {
+            check(i);
+            return OrderCodec.fitsLong(amounts, i * 4) && OrderCodec.fitsLong(filled, i * 4) && OrderCodec.fitsLong(prices, i * 4);
+        }
+
+        /** Fast-path accessors; only valid when {@link #fitsLong(int)} is true. */
+        public long amountLong(int i) { return amounts[i * 4 + 3]; }
+        public long filledAmountLong(int i) { return filled[i * 4 + 3]; }
+        public long pricePerUnitLong(int i) { return prices[i * 4 + 3]; }
+
+        /** amount - filledAmount, without BigInteger when both fit in a long. */
+        public BigInteger remaining(int i) {
+            check(i);
+            if (OrderCodec.fitsLong(amounts, i * 4) && OrderCodec.fitsLong(filled, i * 4)) return BigInteger.valueOf(amounts[i * 4 + 3] - filled[i * 4 + 3]);
+            return OrderCodec.getUint(amounts, i * 4).subtract(OrderCodec.getUint(filled, i * 4));
+        }
+
+        /** Linear scan for an id; returns -1 when absent. */
+        public int indexOf(String orderIdHex) {
+            long[] key = new long[4];
+            OrderCodec.hexToLongs(orderIdHex, key, 0, 32);
+            for (int i = 0; i < size; i++) {
+                int o = i * 4;
+                if (ids[o + 3] == key[3] && ids[o + 2] == key[2] && ids[o + 1] == key[1] && ids[o] == key[0]) return i;
+            }
+            return -1;
+        }
+
+        public List<OrderView> toList() {
+            List<OrderView> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) list.add(get(i));
+            return list;
+        }
+
+        private void check(int i) {
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("order " + i + " of " + size);
+        }
+
+        private void allocate(int capacity) {
+            ids = grow(ids, capacity * 4);
+            makers = grow(makers, capacity * 3);
+            assetIds = grow(assetIds, capacity * 4);
+            amounts = grow(amounts, capacity * 4);
+            prices = grow(prices, capacity * 4);
+            filled = grow(filled, capacity * 4);
+            createdAt = grow(createdAt, capacity);
+            assetTypes = assetTypes == null ? new byte[capacity] : Arrays.copyOf(assetTypes, capacity);
+            statuses = statuses == null ? new byte[capacity] : Arrays.copyOf(statuses, capacity);
+            sells = sells == null ? new boolean[capacity] : Arrays.copyOf(sells, capacity);
+        }
+
+        private static long[] grow(long[] a, int len) {
+            return a == null ? new long[len] : Arrays.copyOf(a, len);
+        }
+    }
+
+    /** Order ids packed as four longs each: 32 bytes per id rather than a ~130-byte String. */
+    public static final class OrderIdList extends AbstractList<String> implements RandomAccess {
+        private long[] words;
+        private int size;
+
+        public OrderIdList() {
+            this(256);
+        }
+
+        public OrderIdList(int capacity) {
+            words = new long[Math.max(16, capacity) * 4];
+        }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public String get(int i) {
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("id " + i + " of " + size);
+            return OrderCodec.longsToHex(words, i * 4, 32);
+        }
+
+        @Override
+        public boolean add(String orderIdHex) {
+            ensure();
+            OrderCodec.hexToLongs(orderIdHex, words, size * 4, 32);
+            size++;
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends String> c) {
+            if (!(c instanceof OrderIdList)) return super.addAll(c);
+            OrderIdList other = (OrderIdList) c;
+            if (size * 4 + other.size * 4 > words.length) words = Arrays.copyOf(words, Math.max(words.length * 2, (size + other.size) * 4));
+            System.arraycopy(other.words, 0, words, size * 4, other.size * 4);
+            size += other.size;
+            modCount++;
+            return other.size > 0;
+        }
+
+        /** Appends the bytes32 at {@code word} without going through a String. */
+        void add(AbiWords w, int word) {
+            ensure();
+            for (int k = 0; k < 4; k++) words[size * 4 + k] = w.getLane(word, k);
+            size++;
+            modCount++;
+        }
+
+        private void ensure() {
+            if (size * 4 == words.length) words = Arrays.copyOf(words, words.length * 2);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // OFF-HEAP COLUMNAR ORDER STORE
+    // -------------------------------------------------------------------------
+
+    /**
+     * Off-heap columnar order storage in direct ByteBuffers, so millions of historical orders add
+     * no GC pressure. Fields are read in place through a reusable Cursor flyweight; filters on
+     * status, assetType and side copy the one-byte columns out in chunks and combine them as
+     * branch-free byte masks packed into bit words. asList() exposes the store wherever a {@code List<OrderView>} is expected.
+     */
+    public static final class OffHeapOrderStore {
+        private static final int ID_BYTES = 32;
+        private static final int MAKER_BYTES = 20;
+        private static final int UINT_BYTES = 32;
+        private static final int SCAN_CHUNK = 4096;
+
+        private int size;
+        private int capacity;
+        private ByteBuffer ids;
+        private ByteBuffer makers;
+        private ByteBuffer assetIds;
+        private ByteBuffer amounts;
+        private ByteBuffer prices;
+        private ByteBuffer filled;
+        private ByteBuffer createdAt;
+        private ByteBuffer assetTypes;
+        private ByteBuffer statuses;
+        private ByteBuffer sides; // 1 = sell
+
+        public OffHeapOrderStore(int capacity) {
+            grow(Math.max(16, capacity));
+        }
+
+        public static OffHeapOrderStore of(Collection<OrderView> views) {
+            OffHeapOrderStore s = new OffHeapOrderStore(views.size());
+            for (OrderView v : views) s.add(v);
+            return s;
+        }
+
+        public int size() { return size; }
+
+        public int add(OrderView v) {
+            if (size == capacity) grow(capacity * 2);
+            int i = size;
+            OrderCodec.checkColumnar(v);
+            OrderCodec.putHex(ids, i * ID_BYTES, v.orderId, ID_BYTES);
+            OrderCodec.putHex(makers, i * MAKER_BYTES, v.maker, MAKER_BYTES);
+            OrderCodec.putHex(assetIds, i * ID_BYTES, v.assetId, ID_BYTES);
+            OrderCodec.putUint(amounts, i * UINT_BYTES, v.amount);
+            OrderCodec.putUint(prices, i * UINT_BYTES, v.pricePerUnit);
+            OrderCodec.putUint(filled, i * UINT_BYTES, v.filledAmount);
+            createdAt.putLong(i * 8, v.createdAt.longValue());
+            assetTypes.put(i, (byte) v.assetType);
+            statuses.put(i, (byte) v.status);
+            sides.put(i, (byte) (v.isSell ? 1 : 0));
+            return size++;
+        }
+
+        /** A flyweight positioned at row 0; move it with {@link Cursor#at(int)}. */
+        public Cursor cursor() { return new Cursor(); }
+
+        /** Reads fields of one row in place; reposition instead of allocating per row. */
+        public final class Cursor {
+            private final byte[] scratch = new byte[UINT_BYTES];
+            private int row;
+
+            public Cursor at(int i) {
+                if (i < 0 || i >= size) throw new IndexOutOfBoundsException("order " + i + " of " + size);
+                row = i;
+                return this;
+            }
+
+            public int row() { return row; }
+            public int status() { return statuses.get(row); }
+            public int assetType() { return assetTypes.get(row); }
+            public boolean isSell() { return sides.get(row) != 0; }
+            public long createdAt() { return createdAt.getLong(row * 8); }
+            public String orderId() { return OrderCodec.hex(ids, row * ID_BYTES, ID_BYTES); }
+            public String maker() { return OrderCodec.hex(makers, row * MAKER_BYTES, MAKER_BYTES); }
+            public String assetId() { return OrderCodec.hex(assetIds, row * ID_BYTES, ID_BYTES); }
+            public BigInteger amount() { return OrderCodec.getUint(amounts, row * UINT_BYTES, scratch); }
+            public BigInteger pricePerUnit() { return OrderCodec.getUint(prices, row * UINT_BYTES, scratch); }
+            public BigInteger filledAmount() { return OrderCodec.getUint(filled, row * UINT_BYTES, scratch); }
+
+            /** Low 64 bits of amount; exact when {@link #amountFitsLong()}. */
+            public long amountLong() { return amounts.getLong(row * UINT_BYTES + 24); }
+            public boolean amountFitsLong() { return OrderCodec.fitsLong(amounts, row * UINT_BYTES); }
+            public long pricePerUnitLong() { return prices.getLong(row * UINT_BYTES + 24); }
+            public boolean pricePerUnitFitsLong() { return OrderCodec.fitsLong(prices, row * UINT_BYTES); }
+
+            public OrderView toOrderView() {
+                OrderView v = new OrderView();
+                v.orderId = orderId(); // already canonical; not interned on bulk reads
+                v.maker = maker();
+                v.assetType = assetType();
+                v.assetId = assetId();
+                v.amount = amount();
+                v.pricePerUnit = pricePerUnit();
+                v.isSell = isSell();
+                v.filledAmount = filledAmount();
+                v.status = status();
+                v.createdAt = BigInteger.valueOf(createdAt());
+                return v;
+            }
+        }
+
+        /**
+         * Rows matching every given filter; pass -1 to skip one. {@code side} is 1 for sell, 0 for buy.
+         */
+        public BitSet scan(int status, int assetType, int side) {
+            if (status > 0xFF || assetType > 0xFF || side > 0xFF) return new BitSet(); // columns hold one byte
+            long[] words = new long[(size + 63) >>> 6];
+            byte[] mask = new byte[SCAN_CHUNK];
+            byte[] col = new byte[SCAN_CHUNK];
+            for (int base = 0; base < size; base += SCAN_CHUNK) { // SCAN_CHUNK is a multiple of 64
+                int n = Math.min(SCAN_CHUNK, size - base);
+                Arrays.fill(mask, 0, n, (byte) 1);
+                if (status >= 0) andEquals(statuses, base, n, status, col, mask);
+                if (assetType >= 0) andEquals(assetTypes, base, n, assetType, col, mask);
+                if (side >= 0) andEquals(sides, base, n, side, col, mask);
+                for (int k = 0; k < n; k++) words[(base + k) >>> 6] |= (long) mask[k] << (k & 63);
+            }
+            return BitSet.valueOf(words);
+        }
+
+        /** mask[k] &= (column[base + k] == value), without a branch per row. */
+        private static void andEquals(ByteBuffer column, int base, int n, int value, byte[] col, byte[] mask) {
+            column.get(base, col, 0, n);
+            for (int k = 0; k < n; k++) mask[k] &= (byte) ((((col[k] ^ value) & 0xFF) - 1) >>> 31);
+        }
+
+        public int count(int status, int assetType, int side) {
+            return scan(status, assetType, side).cardinality();
+        }
+
+        /** Read-only List view; get() materialises an OrderView per call. */
+        public List<OrderView> asList() {
+            return new AbstractList<OrderView>() {
+                @Override
+                public OrderView get(int index) { return cursor().at(index).toOrderView(); }
+
+                @Override
+                public int size() { return size; }
+            };
+        }
+
+        private void grow(int newCapacity) {
+            ids = regrow(ids, newCapacity * ID_BYTES);
+            makers = regrow(makers, newCapacity * MAKER_BYTES);
+            assetIds = regrow(assetIds, newCapacity * ID_BYTES);
+            amounts = regrow(amounts, newCapacity * UINT_BYTES);
+            prices = regrow(prices, newCapacity * UINT_BYTES);
+            filled = regrow(filled, newCapacity * UINT_BYTES);
+            createdAt = regrow(createdAt, newCapacity * 8);
+            assetTypes = regrow(assetTypes, newCapacity);
+            statuses = regrow(statuses, newCapacity);
+            sides = regrow(sides, newCapacity);
+            capacity = newCapacity;
+        }
+
+        private static ByteBuffer regrow(ByteBuffer old, int bytes) {
+            ByteBuffer b = ByteBuffer.allocateDirect(bytes); // big-endian, matching ABI word order
+            if (old != null) b.put(old.duplicate().clear());
+            return b.clear();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // KECCAK-256 & SELECTOR REGISTRY
+    // -------------------------------------------------------------------------
+
+    /** Pure-Java Keccak-256 (the pre-NIST padding Ethereum uses, not SHA3-256). */
+    public static final class Keccak256 {
+        private static final int RATE = 136;
+        private static final long[] ROUND_CONSTANTS = {
+            0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL, 0x8000000080008000L,
+            0x000000000000808bL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+            0x000000000000008aL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+            0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L, 0x8000000000008003L,
+            0x8000000000008002L, 0x8000000000000080L, 0x000000000000800aL, 0x800000008000000aL,
+            0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+        };
+        private static final int[] ROTATIONS = {
+            0, 1, 62, 28, 27, 36, 44, 6, 55, 20, 3, 10, 43, 25, 39, 41, 45, 15, 21, 8, 18, 2, 61, 56, 14
+        };
+
+        private Keccak256() {}
+
+        public static byte[] hash(byte[] input) {
+            long[] state = new long[25];
+            int full = input.length / RATE;
+            for (int b = 0; b < full; b++) {
+                absorb(state, input, b * RATE, RATE);
+                permute(state);
+            }
+            byte[] last = new byte[RATE];
+            int rem = input.length - full * RATE;
+            System.arraycopy(input, full * RATE, last, 0, rem);
+            last[rem] ^= 0x01;
+            last[RATE - 1] ^= (byte) 0x80;
+            absorb(state, last, 0, RATE);
+            permute(state);
+            byte[] out = new byte[32];
+            for (int i = 0; i < 32; i++) out[i] = (byte) (state[i >> 3] >>> (8 * (i & 7)));
+            return out;
+        }
+
+        public static byte[] hash(String utf8) {
+            return hash(utf8.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** Hash of hex-encoded bytes (e.g. calldata), returned as 0x-prefixed hex. */
+        public static String hashHex(String hex) {
+            String h = hex.startsWith("0x") ? hex.substring(2) : hex;
+            if ((h.length() & 1) != 0) throw new IllegalArgumentException("Odd-length hex");
+            byte[] bytes = new byte[h.length() / 2];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (AbiWords.digit(h.charAt(2 * i)) << 4 | AbiWords.digit(h.charAt(2 * i + 1)));
+            }
+            return toHex(hash(bytes));
+        }
+
+        static String toHex(byte[] bytes) {
+            StringBuilder sb = new StringBuilder(2 + bytes.length * 2).append("0x");
+            for (byte b : bytes) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        }
+
+        private static void absorb(long[] state, byte[] in, int off, int len) {
+            for (int i = 0; i < len / 8; i++) {
+                long lane = 0;
+                for (int k = 7; k >= 0; k--) lane = (lane << 8) | (in[off + i * 8 + k] & 0xFFL);
+                state[i] ^= lane;
+            }
+        }
+
+        private static void permute(long[] a) {
+            long[] c = new long[5];
+            long[] b = new long[25];
+            for (int round = 0; round < 24; round++) {
+                for (int x = 0; x < 5; x++) c[x] = a[x] ^ a[x + 5] ^ a[x + 10] ^ a[x + 15] ^ a[x + 20];
+                for (int x = 0; x < 5; x++) {
+                    long d = c[(x + 4) % 5] ^ Long.rotateLeft(c[(x + 1) % 5], 1);
+                    for (int y = 0; y < 25; y += 5) a[y + x] ^= d;
+                }
+                for (int x = 0; x < 5; x++) {
+                    for (int y = 0; y < 5; y++) {
+                        b[y + 5 * ((2 * x + 3 * y) % 5)] = Long.rotateLeft(a[x + 5 * y], ROTATIONS[x + 5 * y]);
+                    }
+                }
+                for (int y = 0; y < 25; y += 5) {
+                    for (int x = 0; x < 5; x++) a[y + x] = b[y + x] ^ (~b[y + (x + 1) % 5] & b[y + (x + 2) % 5]);
+                }
+                a[0] ^= ROUND_CONSTANTS[round];
+            }
+        }
+    }
+
+    /**
+     * Function selectors and event topics computed from Solidity signatures with Keccak256 and
+     * cached. Event topics are always derived here; {@link #verifyKnown()} checks the
+     * hand-typed function selectors above against the signatures they are meant to encode
+     * (the signatures are inferred, not taken from the deployed ABI). Transacto construction consults the {@code transacto.selectors} system
+     * property: {@code off} (default) skips the check, {@code warn} logs mismatches once and
+     * {@code strict} makes every construction throw while they persist.
+     */
+    public static final class SelectorRegistry {
+        private static final ConcurrentHashMap<String, byte[]> SELECTORS = new ConcurrentHashMap<>();
+        private static final ConcurrentHashMap<String, String> TOPICS = new ConcurrentHashMap<>();
+        private static final Map<String, String> KNOWN_SELECTORS = new LinkedHashMap<>();
+        private static volatile List<String> verification; // verifyKnown() result, once computed
+
+        static {
+            KNOWN_SELECTORS.put("postOrder(uint8,bytes32,uint256,uint256,bool)", POST_ORDER_SELECTOR);
+            KNOWN_SELECTORS.put("fillOrder(bytes32,uint256)", FILL_ORDER_SELECTOR);
+            KNOWN_SELECTORS.put("cancelOrder(bytes32)", CANCEL_ORDER_SELECTOR);
+            KNOWN_SELECTORS.put("getOrderView(bytes32)", GET_ORDER_VIEW_SELECTOR);
+            KNOWN_SELECTORS.put("getOrderSummariesBatch(uint256,uint256)", GET_ORDER_SUMMARIES_BATCH_SELECTOR);
+            KNOWN_SELECTORS.put("getOrderIdsLength()", GET_ORDER_IDS_LENGTH_SELECTOR);
+            KNOWN_SELECTORS.put("getOrderAt(uint256)", GET_ORDER_AT_SELECTOR);
+            KNOWN_SELECTORS.put("getOrderViewByIndex(uint256)", GET_ORDER_VIEW_BY_INDEX_SELECTOR);
+            KNOWN_SELECTORS.put("getPlatformStats()", GET_PLATFORM_STATS_SELECTOR);
+            KNOWN_SELECTORS.put("isPlatformPaused()", IS_PLATFORM_PAUSED_SELECTOR);
+            KNOWN_SELECTORS.put("minOrderSize()", MIN_ORDER_SIZE_SELECTOR);
+            KNOWN_SELECTORS.put("feePercentBps()", FEE_PERCENT_BPS_SELECTOR);
+            KNOWN_SELECTORS.put("getOrderIds()", GET_ORDER_IDS_SELECTOR);
+        }
+
+        private SelectorRegistry() {}
+
+        /** First four bytes of keccak256(signature); callers must not modify the returned array. */
+        public static byte[] selector(String signature) {
+            return SELECTORS.computeIfAbsent(signature, sig -> Arrays.copyOf(Keccak256.hash(sig), 4));
+        }
+
+        public static String selectorHex(String signature) {
+            return Keccak256.toHex(selector(signature));
+        }
+
+        /** keccak256(signature) as a 0x-prefixed event topic. */
+        public static String topic(String signature) {
+            return TOPICS.computeIfAbsent(signature, sig -> Keccak256.toHex(Keccak256.hash(sig)));
+        }
+
+        /** Human-readable mismatches between the hand-typed constants and their signatures. */
+        public static List<String> verifyKnown() {
+            List<String> problems = new ArrayList<>();
+            for (Map.Entry<String, String> e : KNOWN_SELECTORS.entrySet()) {
+                String computed = selectorHex(e.getKey());
+                if (!computed.equalsIgnoreCase(e.getValue())) problems.add(e.getKey() + ": constant " + e.getValue() + ", computed " + computed);
+            }
+            return problems;
+        }
+
+        static void verifyOnce() {
+            String mode = System.getProperty("transacto.selectors", "off");
+            if ("off".equals(mode)) return;
+            List<String> problems = verification;
+            if (problems == null) {
+                synchronized (SelectorRegistry.class) {
+                    problems = verification;
+                    if (problems == null) {
+                        problems = Collections.unmodifiableList(verifyKnown());
+                        verification = problems;
+                        if (!"strict".equals(mode)) for (String p : problems) System.err.println("WARN selector mismatch " + p);
+                    }
+                }
+            }
+            if ("strict".equals(mode) && !problems.isEmpty()) {
+                throw new IllegalStateException("Selector constants do not match signatures: " + problems);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // ORDER VIEW CURSOR
+    // -------------------------------------------------------------------------
+
+    /**
+     * Iterates OrderViews in index order over [position, end), where end is the book length
+     * when the cursor was opened. The next page is fetched in the background while the caller
+     * consumes the current one. {@link #position()} is the first index not yet returned; pass
+     * it to {@link Transacto#orderViewCursor(long, int)} to resume. RPC failures and views that
+     * cannot be decoded surface as UncheckedIOException with position() left at the failed
+     * index. The prefetch thread is released once the last page is fetched; close the cursor
+     * (or the stream) to stop early.
+     */
+    public static final class OrderViewCursor implements Iterator<OrderView>, AutoCloseable {
+        private final Transacto client;
+        private final long end;
+        private final int pageSize;
+        private final ExecutorService prefetcher = newScanExecutor(1);
+        private OrderView[] page = new OrderView[0];
+        private long pageStart;
+        private int pageIndex;
+        private Future<OrderView[]> next;
+
+        OrderViewCursor(Transacto client, long position, long end, int pageSize) {
+            this.client = client;
+            this.end = end;
+            this.pageSize = pageSize;
+            this.pageStart = position;
+            this.next = position < end ? fetch(position) : null;
+            if (next == null) prefetcher.shutdown();
+        }
+
+        public long position() { return pageStart + pageIndex; }
+
+        public long end() { return end; }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                if (pageIndex < page.length) {
+                    if (page[pageIndex] == null) throw new UncheckedIOException(new IOException("Order at index " + position() + " could not be decoded"));
+                    return true;
+                }
+                if (next == null) return false;
+                long start = pageStart + page.length;
+                OrderView[] fetched = await(next);
+                long after = start + fetched.length;
+                next = after < end ? fetch(after) : null;
+                if (next == null) prefetcher.shutdown(); // last page in hand
+                page = fetched;
+                pageStart = start;
+                pageIndex = 0;
+            }
+        }
+
+        @Override
+        public OrderView next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return page[pageIndex++];
+        }
+
+        /** The remaining views as an ordered stream; closing the stream closes the cursor. */
+        public Stream<OrderView> stream() {
+            Spliterator<OrderView> split = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+            return StreamSupport.stream(split, false).onClose(this::close);
+        }
+
+        @Override
+        public void close() {
+            if (next != null) next.cancel(true);
+            next = null;
+            prefetcher.shutdownNow();
+        }
+
+        private Future<OrderView[]> fetch(long start) {
+            int count = (int) Math.min(pageSize, end - start);
+            return prefetcher.submit(() -> client.getOrderViewsByIndex(start, count));
+        }
+
+        private static OrderView[] await(Future<OrderView[]> f) {
+            try {
+                return f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Order view prefetch interrupted"));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw new UncheckedIOException(cause instanceof IOException ? (IOException) cause : new IOException(cause));
+            }
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -319,14 +3721,16 @@ public final class Transacto {
     // -------------------------------------------------------------------------
 
     public String buildPostOrderData(BigInteger assetType, String assetIdHex, BigInteger amount, BigInteger pricePerUnit, boolean isSell) {
-        return POST_ORDER_SELECTOR
-            + padUint256(assetType)
-            + padBytes32(assetIdHex)
-            + padUint256(amount)
-            + padUint256(pricePerUnit)
-            + encodeBool(isSell);
+        return AbiWriter.get()
+            .selector(POST_ORDER_SELECTOR)
+            .uint(assetType)
+            .bytes32(assetIdHex)
+            .uint(amount)
+            .uint(pricePerUnit)
+            .bool(isSell)
+            .toHex();
     }
 
     public String buildFillOrderData(String orderIdHex, BigInteger fillAmount) {
-        return FILL_ORDER_SELECTOR + padBytes32(orderIdHex) + padUint256(fillAmount);
+        return AbiWriter.get().selector(FILL_ORDER_SELECTOR).bytes32(orderIdHex).uint(fillAmount).toHex();
     }